@@ -0,0 +1,44 @@
+package src.fitness;
+
+/**
+ * {@link NgramTable} held on the heap as a {@code float} array of {@code 26^n} slots.
+ *
+ * @see NgramFiles#readText(java.nio.file.Path, int)
+ */
+public class DenseNgramTable implements NgramTable {
+    private final int n;
+    private final float[] table;
+    private final float maxLogProbability;
+
+    /**
+     * @param n         no. of letters per n-gram
+     * @param table     log-probability of every n-gram by base-26 index, {@code 26^n} long; not copied, must not be modified afterwards
+     */
+    public DenseNgramTable(int n, float[] table) {
+        if (table.length != NgramFiles.slots(n)) {
+            throw new IllegalArgumentException("`table` must have 26^" + n + " slots (passed `" + table.length + "`)");
+        }
+
+        this.n = n;
+        this.table = table;
+
+        float max = Float.NEGATIVE_INFINITY;
+        for (float p : table) max = Math.max(max, p);
+        this.maxLogProbability = max;
+    }
+
+    @Override
+    public int length() {
+        return n;
+    }
+
+    @Override
+    public float logProbability(int index) {
+        return table[index];
+    }
+
+    @Override
+    public float maxLogProbability() {
+        return maxLogProbability;
+    }
+}
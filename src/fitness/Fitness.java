@@ -0,0 +1,39 @@
+package src.fitness;
+
+/**
+ * {@link Fitness} scores a decryption held as letter indices, higher being more like plaintext.
+ * <p>
+ * Implementations must be safe to share between threads. Built-in ones are found by name through {@link Fitnesses},
+ * and more can be plugged in with a {@link FitnessProvider}.
+ *
+ * @see Fitnesses#named(String)
+ * @see TieredFitness
+ * @see WeightedFitness
+ */
+public interface Fitness {
+
+    /**
+     * @return  name the fitness is looked up by, e.g. {@code "quadgram"}
+     */
+    String name();
+
+    /**
+     * @param letters   letter indices, 0 - 25
+     * @param length    no. of letters to score
+     * @return          score of the letters
+     */
+    double score(int[] letters, int length);
+
+    /**
+     * Same as {@link #score(int[], int)}, but may give up as soon as the score cannot reach {@code threshold}.
+     * The default never gives up.
+     *
+     * @param letters       letter indices, 0 - 25
+     * @param length        no. of letters to score
+     * @param threshold     score to reach
+     * @return              score of the letters, or {@link Double#NEGATIVE_INFINITY} if it is certainly below {@code threshold}
+     */
+    default double score(int[] letters, int length, double threshold) {
+        return score(letters, length);
+    }
+}
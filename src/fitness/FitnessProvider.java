@@ -0,0 +1,23 @@
+package src.fitness;
+
+import java.util.Set;
+
+/**
+ * Service provider interface for {@link Fitness} implementations, discovered by {@link Fitnesses} through
+ * {@link java.util.ServiceLoader}. List implementations in {@code META-INF/services/src.fitness.FitnessProvider}.
+ *
+ * @see StandardFitnessProvider
+ */
+public interface FitnessProvider {
+
+    /**
+     * @return  names of the fitnesses this provider creates
+     */
+    Set<String> names();
+
+    /**
+     * @param name  one of {@link #names()}
+     * @return      the {@link Fitness}, possibly shared
+     */
+    Fitness create(String name);
+}
@@ -0,0 +1,41 @@
+package src.fitness;
+
+import java.util.LinkedHashSet;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * Looks up {@link Fitness} implementations by name, first from the {@link FitnessProvider}s found by
+ * {@link ServiceLoader}, then from the built-in {@link StandardFitnessProvider}.
+ *
+ * @see #named(String)
+ */
+public final class Fitnesses {
+    private static final FitnessProvider STANDARD = new StandardFitnessProvider();
+
+    private Fitnesses() {
+    }
+
+    /**
+     * @param name  fitness name, e.g. {@code "quadgram"}
+     * @return      the {@link Fitness}
+     * @throws IllegalArgumentException if no provider knows {@code name}
+     */
+    public static Fitness named(String name) {
+        for (FitnessProvider provider : ServiceLoader.load(FitnessProvider.class)) {
+            if (provider.names().contains(name)) return provider.create(name);
+        }
+        if (STANDARD.names().contains(name)) return STANDARD.create(name);
+
+        throw new IllegalArgumentException("unknown fitness `" + name + "`");
+    }
+
+    /**
+     * @return  names of every fitness available
+     */
+    public static Set<String> available() {
+        Set<String> names = new LinkedHashSet<>(STANDARD.names());
+        for (FitnessProvider provider : ServiceLoader.load(FitnessProvider.class)) names.addAll(provider.names());
+        return names;
+    }
+}
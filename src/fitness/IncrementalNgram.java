@@ -0,0 +1,266 @@
+package src.fitness;
+
+/**
+ * {@link IncrementalNgram} keeps the {@link Ngram} contribution of every window of a letter buffer,
+ * so that changing a few letters only rescores the windows that touch them.
+ * <p>
+ * Over a {@link QuantizedNgramTable}, the contributions are kept as integer codes and every score sums them
+ * as integers, the same way {@link Ngram#score(int[], int)} does, so both give the same score for the same letters.
+ * <p>
+ * The cached contributions belong to one buffer being searched, so instances are not to be shared between threads.
+ *
+ * @see #trial(int[], int[], int)
+ * @see #trial(int[], int[], int, double)
+ * @see #apply(int[], int[], int)
+ */
+public class IncrementalNgram {
+    private final Ngram ngram;
+    private final int n;
+    private final int length;
+    private final int[] letters;
+    private final float[] contributions;
+    private final int[] previous;
+    private double score;
+
+    // integer path, over a QuantizedNgramTable only
+    private final QuantizedNgramTable quantized;
+    private final int[] codes;
+    private long codeSum;
+
+    /**
+     * @param ngram     model to score with
+     * @param letters   letter indices, 0 - 25; copied
+     * @param length    no. of letters to score
+     */
+    public IncrementalNgram(Ngram ngram, int[] letters, int length) {
+        this.ngram = ngram;
+        this.n = ngram.length();
+        this.length = length;
+        this.letters = new int[length];
+        this.previous = new int[length];
+        this.quantized = (ngram.getTable() instanceof QuantizedNgramTable q) ? q : null;
+
+        int windows = Math.max(0, length - n + 1);
+        this.contributions = (quantized == null) ? new float[windows] : null;
+        this.codes = (quantized == null) ? null : new int[windows];
+
+        System.arraycopy(letters, 0, this.letters, 0, length);
+
+        if (quantized != null) {
+            for (int w = 0; w < windows; w++) {
+                codes[w] = windowCode(w);
+                codeSum += codes[w];
+            }
+            score = quantized.score(codeSum, windows);
+            return;
+        }
+
+        for (int w = 0; w < windows; w++) {
+            contributions[w] = windowScore(w);
+            score += contributions[w];
+        }
+    }
+
+    /**
+     * @return  sum of the log-probabilities of every n-gram window of the current letters
+     */
+    public double score() {
+        return score;
+    }
+
+    public int letterAt(int position) {
+        return letters[position];
+    }
+
+    /**
+     * Scores the letters as if {@code newLetters} were written at {@code positions}, without changing them.
+     *
+     * @param positions     changed positions, in ascending order
+     * @param newLetters    letter index written at each of {@code positions}
+     * @param count         no. of changed positions
+     * @return              score after the change
+     */
+    public double trial(int[] positions, int[] newLetters, int count) {
+        for (int i = 0; i < count; i++) {
+            previous[i] = letters[positions[i]];
+            letters[positions[i]] = newLetters[i];
+        }
+
+        double delta = 0;
+        long codeDelta = 0;
+        int next = 0;
+
+        for (int i = 0; i < count; i++) {
+            int from = Math.max(next, positions[i] - n + 1);
+            int to = Math.min(positions[i], windows() - 1);
+
+            if (quantized != null) {
+                for (int w = from; w <= to; w++) codeDelta += windowCode(w) - codes[w];
+            } else {
+                for (int w = from; w <= to; w++) delta += windowScore(w) - contributions[w];
+            }
+            next = Math.max(next, to + 1);
+        }
+
+        for (int i = count - 1; i >= 0; i--) letters[positions[i]] = previous[i];
+
+        return (quantized != null) ? quantized.score(codeSum + codeDelta, windows()) : score + delta;
+    }
+
+    /**
+     * Same as {@link #trial(int[], int[], int)}, but gives up as soon as the score cannot reach {@code threshold}.
+     * <p>
+     * No window can score more than {@link Ngram#maxLogProbability()}, so the windows touched by the change can add
+     * at most that minus their current contribution each. That bound is checked before any window is rescored and
+     * tightened as they are.
+     *
+     * @param positions     changed positions, in ascending order
+     * @param newLetters    letter index written at each of {@code positions}
+     * @param count         no. of changed positions
+     * @param threshold     score to reach
+     * @return              score after the change, or {@link Double#NEGATIVE_INFINITY} if it is certainly below {@code threshold}
+     */
+    public double trial(int[] positions, int[] newLetters, int count, double threshold) {
+        if (quantized != null) return quantizedTrial(positions, newLetters, count, threshold);
+
+        double max = ngram.maxLogProbability();
+        double headroom = 0;
+        int next = 0;
+
+        for (int i = 0; i < count; i++) {
+            int from = Math.max(next, positions[i] - n + 1);
+            int to = Math.min(positions[i], windows() - 1);
+
+            for (int w = from; w <= to; w++) headroom += max - contributions[w];
+            next = Math.max(next, to + 1);
+        }
+
+        if (score + headroom + Ngram.BOUND_MARGIN < threshold) return Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < count; i++) {
+            previous[i] = letters[positions[i]];
+            letters[positions[i]] = newLetters[i];
+        }
+
+        double delta = 0;
+        next = 0;
+        boolean hopeless = false;
+
+        for (int i = 0; i < count && !hopeless; i++) {
+            int from = Math.max(next, positions[i] - n + 1);
+            int to = Math.min(positions[i], windows() - 1);
+
+            for (int w = from; w <= to; w++) {
+                delta += windowScore(w) - contributions[w];
+                headroom -= max - contributions[w];
+            }
+            next = Math.max(next, to + 1);
+
+            hopeless = score + delta + headroom + Ngram.BOUND_MARGIN < threshold;
+        }
+
+        for (int i = count - 1; i >= 0; i--) letters[positions[i]] = previous[i];
+
+        return hopeless ? Double.NEGATIVE_INFINITY : score + delta;
+    }
+
+    /**
+     * {@link #trial(int[], int[], int, double)} over a {@link QuantizedNgramTable}: the headroom of a window is
+     * {@link QuantizedNgramTable#maxCode()} minus its code, and the bound is checked on the integer sums.
+     */
+    private double quantizedTrial(int[] positions, int[] newLetters, int count, double threshold) {
+        int windows = windows();
+        int maxCode = quantized.maxCode();
+        long headroom = 0;
+        int next = 0;
+
+        for (int i = 0; i < count; i++) {
+            int from = Math.max(next, positions[i] - n + 1);
+            int to = Math.min(positions[i], windows - 1);
+
+            for (int w = from; w <= to; w++) headroom += maxCode - codes[w];
+            next = Math.max(next, to + 1);
+        }
+
+        if (quantized.score(codeSum + headroom, windows) + Ngram.BOUND_MARGIN < threshold) return Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < count; i++) {
+            previous[i] = letters[positions[i]];
+            letters[positions[i]] = newLetters[i];
+        }
+
+        long delta = 0;
+        next = 0;
+        boolean hopeless = false;
+
+        for (int i = 0; i < count && !hopeless; i++) {
+            int from = Math.max(next, positions[i] - n + 1);
+            int to = Math.min(positions[i], windows - 1);
+
+            for (int w = from; w <= to; w++) {
+                delta += windowCode(w) - codes[w];
+                headroom -= maxCode - codes[w];
+            }
+            next = Math.max(next, to + 1);
+
+            hopeless = quantized.score(codeSum + delta + headroom, windows) + Ngram.BOUND_MARGIN < threshold;
+        }
+
+        for (int i = count - 1; i >= 0; i--) letters[positions[i]] = previous[i];
+
+        return hopeless ? Double.NEGATIVE_INFINITY : quantized.score(codeSum + delta, windows);
+    }
+
+    /**
+     * Writes {@code newLetters} at {@code positions} and updates the windows that touch them.
+     *
+     * @param positions     changed positions, in ascending order
+     * @param newLetters    letter index written at each of {@code positions}
+     * @param count         no. of changed positions
+     */
+    public void apply(int[] positions, int[] newLetters, int count) {
+        for (int i = 0; i < count; i++) letters[positions[i]] = newLetters[i];
+
+        int next = 0;
+
+        for (int i = 0; i < count; i++) {
+            int from = Math.max(next, positions[i] - n + 1);
+            int to = Math.min(positions[i], windows() - 1);
+
+            if (quantized != null) {
+                for (int w = from; w <= to; w++) {
+                    int code = windowCode(w);
+                    codeSum += code - codes[w];
+                    codes[w] = code;
+                }
+            } else {
+                for (int w = from; w <= to; w++) {
+                    float contribution = windowScore(w);
+                    score += contribution - contributions[w];
+                    contributions[w] = contribution;
+                }
+            }
+            next = Math.max(next, to + 1);
+        }
+
+        if (quantized != null) score = quantized.score(codeSum, windows());
+    }
+
+    private int windows() {
+        return (quantized != null) ? codes.length : contributions.length;
+    }
+
+    private int windowIndex(int w) {
+        int index = 0;
+        for (int i = w; i < w + n; i++) index = index * 26 + letters[i];
+        return index;
+    }
+
+    private float windowScore(int w) {
+        return ngram.logProbability(windowIndex(w));
+    }
+
+    private int windowCode(int w) {
+        return quantized.code(windowIndex(w));
+    }
+}
@@ -0,0 +1,106 @@
+package src.fitness;
+
+/**
+ * {@link InterpolatedNgram} mixes models of several orders, e.g. bigrams, trigrams and quadgrams, into one model of
+ * the highest order: every window scores the weighted sum of the log-probabilities of its trailing bigram, trigram,
+ * and so on.
+ * <p>
+ * The mix is folded into a single table when the model is built, since the trailing k-gram of a window is just its
+ * base-26 index modulo {@code 26^k}. Scoring is then one pass with one rolling index and one lookup per window,
+ * the cost of the highest order alone, and {@link IncrementalNgram} and the bounded {@link #score(int[], int, double)}
+ * work unchanged.
+ * <p>
+ * Like any {@link Ngram}, the first {@code n - 1} letters start no window, so they only count through the windows
+ * that follow them.
+ *
+ * @see #of(double, double, double)
+ * @see #standard()
+ */
+public class InterpolatedNgram extends Ngram {
+    private static volatile InterpolatedNgram standard;
+
+    private final Ngram[] models;
+    private final double[] weights;
+
+    /**
+     * @param models    models to mix, of orders up to {@link NgramFiles#MAX_DENSE_LENGTH}
+     * @param weights   weight of each model, parallel to {@code models}
+     * @throws IllegalArgumentException if the arrays are empty or differ in length, a weight is negative, or an order is too long
+     */
+    public InterpolatedNgram(Ngram[] models, double[] weights) {
+        super(interpolate(models, weights));
+        this.models = models.clone();
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Mixes the shared models of {@link NgramRegistry}.
+     *
+     * @param bigramWeight      weight of the bigram log-probabilities
+     * @param trigramWeight     weight of the trigram log-probabilities
+     * @param quadgramWeight    weight of the quadgram log-probabilities
+     * @return                  the quadgram-order model
+     */
+    public static InterpolatedNgram of(double bigramWeight, double trigramWeight, double quadgramWeight) {
+        return new InterpolatedNgram(
+                new Ngram[]{NgramRegistry.get(2), NgramRegistry.get(3), NgramRegistry.get(4)},
+                new double[]{bigramWeight, trigramWeight, quadgramWeight});
+    }
+
+    /**
+     * The model named {@code interpolated} by {@link StandardFitnessProvider}, weighting bigrams, trigrams and
+     * quadgrams 0.1, 0.3 and 0.6. Built on the first call and shared afterwards, like the models of {@link NgramRegistry}.
+     *
+     * @return  the shared model
+     */
+    public static InterpolatedNgram standard() {
+        InterpolatedNgram model = standard;
+        if (model != null) return model;
+
+        synchronized (InterpolatedNgram.class) {
+            if (standard == null) standard = of(0.1, 0.3, 0.6);
+            return standard;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "interpolated";
+    }
+
+    public Ngram[] getModels() {
+        return models.clone();
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    private static NgramTable interpolate(Ngram[] models, double[] weights) {
+        if (models.length == 0 || models.length != weights.length) {
+            throw new IllegalArgumentException("`models` and `weights` must be non-empty and of the same length");
+        }
+
+        int n = 0;
+        int[] sizes = new int[models.length];
+        for (int k = 0; k < models.length; k++) {
+            if (weights[k] < 0) throw new IllegalArgumentException("`weights` must not be negative (passed `" + weights[k] + "`)");
+            if (models[k].length() > NgramFiles.MAX_DENSE_LENGTH) {
+                throw new IllegalArgumentException("`models` must be at most " + NgramFiles.MAX_DENSE_LENGTH + " letters long (passed `" + models[k].length() + "`)");
+            }
+            n = Math.max(n, models[k].length());
+            sizes[k] = NgramFiles.slots(models[k].length());
+        }
+
+        float[] table = new float[NgramFiles.slots(n)];
+        for (int index = 0; index < table.length; index++) {
+            double logProbability = 0;
+            for (int k = 0; k < models.length; k++) {
+                logProbability += weights[k] * models[k].logProbability(index % sizes[k]);
+            }
+            table[index] = (float) logProbability;
+        }
+
+        return new DenseNgramTable(n, table);
+    }
+}
@@ -3,6 +3,26 @@ package src.fitness;
 import java.util.Arrays;
 
 public class IoC {
+    /**
+     * No. of letters, or n-gram windows, scored between two checks of the upper bound by every bounded score,
+     * e.g. {@link #fitness(LetterCounter, int, int[], double)} and {@link Ngram#score(int[], int, double)}.
+     */
+    public static final int CHECK_INTERVAL = 64;
+
+    /**
+     * Source of the letters of a bounded {@link #fitness(LetterCounter, int, int[], double)}, counted a block at a time
+     * so that producing them, e.g. decrypting, can stop as soon as the score is out of reach.
+     */
+    @FunctionalInterface
+    public interface LetterCounter {
+        /**
+         * @param from          index of the first letter to count
+         * @param to            index after the last letter to count
+         * @param histogram     26 letter counts to add the letters to
+         */
+        void count(int from, int to, int[] histogram);
+    }
+
     public static float fitness(String str) {
         int[] histogram = new int[26];
 
@@ -16,4 +36,104 @@ public class IoC {
 
         return frequencySum / (length * (length - 1));
     }
+
+    public static float fitness(int[] letters, int length) {
+        int[] histogram = new int[26];
+
+        for (int i = 0; i < length; i++) histogram[letters[i]]++;
+
+        return fitness(histogram);
+    }
+
+    /**
+     * Same as {@link #fitness(int[], int)}, but gives up as soon as the score cannot reach {@code threshold}.
+     *
+     * @param letters       letter indices, 0 - 25
+     * @param length        no. of letters to score
+     * @param threshold     score to reach
+     * @return              index of coincidence of the letters, or {@link Float#NEGATIVE_INFINITY} if it is certainly
+     *                      below {@code threshold}
+     */
+    public static float fitness(int[] letters, int length, double threshold) {
+        return fitness((from, to, histogram) -> {
+            for (int i = from; i < to; i++) histogram[letters[i]]++;
+        }, length, new int[26], threshold);
+    }
+
+    /**
+     * Counts {@code length} letters from {@code counter} in blocks of {@link #CHECK_INTERVAL}, comparing
+     * {@link #upperBound(int[], int)} of the histogram so far against {@code threshold} after every block.
+     *
+     * @param counter       source of the letters
+     * @param length        no. of letters to score
+     * @param histogram     scratch array of 26, cleared first
+     * @param threshold     score to reach, e.g. {@link TopKeyHeap#threshold()}
+     * @return              index of coincidence of the letters, or {@link Float#NEGATIVE_INFINITY} if it is certainly
+     *                      below {@code threshold}
+     */
+    public static float fitness(LetterCounter counter, int length, int[] histogram, double threshold) {
+        Arrays.fill(histogram, 0);
+
+        for (int from = 0; from < length; from += CHECK_INTERVAL) {
+            int to = Math.min(length, from + CHECK_INTERVAL);
+            counter.count(from, to, histogram);
+
+            if (to < length && upperBound(histogram, length) < threshold) return Float.NEGATIVE_INFINITY;
+        }
+
+        return fitness(histogram);
+    }
+
+    /**
+     * @param histogram     26 letter counts
+     * @return              index of coincidence of the counted letters
+     */
+    public static float fitness(int[] histogram) {
+        long frequencySum = 0;
+        int length = 0;
+
+        for (int f : histogram) {
+            frequencySum += (long) f * (f - 1);
+            length += f;
+        }
+
+        return of(frequencySum, length);
+    }
+
+    /**
+     * The one place the index of coincidence is divided out, so that {@link #fitness(int[])}, {@link #upperBound(int[], int)}
+     * and {@link IocAccumulator#fitness()} agree exactly at any length.
+     *
+     * @param frequencySum  sum of {@code f(f - 1)} over the letter counts
+     * @param length        total no. of letters
+     * @return              index of coincidence
+     */
+    static float of(long frequencySum, int length) {
+        return (float) frequencySum / ((long) length * (length - 1));
+    }
+
+    /**
+     * Upper bound on the index of coincidence of {@code length} letters of which only some have been counted so far:
+     * the best case puts every letter still to come on the most frequent one.
+     *
+     * @param histogram     26 letter counts of the letters seen so far
+     * @param length        total no. of letters
+     * @return              a value no {@link #fitness(int[])} of the completed histogram can exceed
+     */
+    public static float upperBound(int[] histogram, int length) {
+        long frequencySum = 0;
+        int counted = 0;
+        int max = 0;
+
+        for (int f : histogram) {
+            frequencySum += (long) f * (f - 1);
+            counted += f;
+            max = Math.max(max, f);
+        }
+
+        long top = max + (length - counted);
+        frequencySum += top * (top - 1) - (long) max * (max - 1);
+
+        return of(frequencySum, length);
+    }
 }
@@ -0,0 +1,105 @@
+package src.fitness;
+
+import java.util.Arrays;
+
+/**
+ * {@link IocAccumulator} keeps the index of coincidence of a letter buffer up to date as single letters change.
+ * <p>
+ * It holds the letter counts and the sum of {@code f(f - 1)} over them as integers, so changing a letter
+ * costs two counter updates instead of a pass over the whole buffer, and {@link #fitness()} equals
+ * {@link IoC#fitness(int[])} of the same letters exactly.
+ * <p>
+ * Not thread-safe; use one accumulator per search.
+ *
+ * @see #set(int, int)
+ * @see #fitness()
+ */
+public class IocAccumulator {
+    private final int[] letters;
+    private final int[] histogram = new int[26];
+    private long frequencySum;
+
+    /**
+     * Starts with every letter at {@code 0}, i.e. {@code A}.
+     *
+     * @param length    no. of letters
+     */
+    public IocAccumulator(int length) {
+        this.letters = new int[length];
+        this.histogram[0] = length;
+        this.frequencySum = (long) length * (length - 1);
+    }
+
+    /**
+     * @param letters   letter indices, 0 - 25; copied
+     * @param length    no. of letters of {@code letters} to take
+     */
+    public IocAccumulator(int[] letters, int length) {
+        this.letters = Arrays.copyOf(letters, length);
+        load(letters);
+    }
+
+    /**
+     * Recomputes everything from {@code letters}.
+     *
+     * @param letters   letter indices, 0 - 25, at least {@link #length()} long; copied
+     */
+    public void reset(int[] letters) {
+        load(letters);
+    }
+
+    private void load(int[] letters) {
+        System.arraycopy(letters, 0, this.letters, 0, this.letters.length);
+        Arrays.fill(histogram, 0);
+        for (int letter : this.letters) histogram[letter]++;
+
+        frequencySum = 0;
+        for (int f : histogram) frequencySum += (long) f * (f - 1);
+    }
+
+    public int length() {
+        return letters.length;
+    }
+
+    public int letterAt(int position) {
+        return letters[position];
+    }
+
+    /**
+     * @param position  index of the letter to change
+     * @param letter    new letter index, 0 - 25
+     */
+    public void set(int position, int letter) {
+        int old = letters[position];
+        if (old == letter) return;
+
+        letters[position] = letter;
+        replace(old, letter);
+    }
+
+    /**
+     * Moves one count from {@code oldLetter} to {@code newLetter}, for callers that track the letters themselves.
+     *
+     * @param oldLetter     letter index that is no longer there, 0 - 25
+     * @param newLetter     letter index that takes its place, 0 - 25
+     */
+    public void replace(int oldLetter, int newLetter) {
+        // f(f - 1) falls by 2(f - 1) when f drops by one, and rises by 2g when g grows by one
+        frequencySum -= 2L * (--histogram[oldLetter]);
+        frequencySum += 2L * (histogram[newLetter]++);
+    }
+
+    /**
+     * @return  sum of {@code f(f - 1)} over the letter counts
+     */
+    public long frequencySum() {
+        return frequencySum;
+    }
+
+    /**
+     * @return  index of coincidence of the current letters
+     */
+    public float fitness() {
+        return IoC.of(frequencySum, letters.length);
+    }
+}
@@ -0,0 +1,26 @@
+package src.fitness;
+
+/**
+ * {@link Fitness} view of {@link IoC}, named {@code "ioc"}.
+ */
+public class IocFitness implements Fitness {
+    public static final IocFitness INSTANCE = new IocFitness();
+
+    @Override
+    public String name() {
+        return "ioc";
+    }
+
+    @Override
+    public double score(int[] letters, int length) {
+        return IoC.fitness(letters, length);
+    }
+
+    /**
+     * @see IoC#fitness(int[], int, double)
+     */
+    @Override
+    public double score(int[] letters, int length, double threshold) {
+        return IoC.fitness(letters, length, threshold);
+    }
+}
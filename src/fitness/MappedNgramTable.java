@@ -0,0 +1,41 @@
+package src.fitness;
+
+import java.nio.FloatBuffer;
+
+/**
+ * {@link NgramTable} read straight from a memory-mapped binary file, see {@link NgramFiles#map(java.nio.file.Path)}.
+ * <p>
+ * Nothing is copied onto the heap: loading costs a header check, and every JVM mapping the same file shares its
+ * pages through the OS page cache.
+ */
+public class MappedNgramTable implements NgramTable {
+    private final int n;
+    private final FloatBuffer table;
+    private final float maxLogProbability;
+
+    /**
+     * @param n                     no. of letters per n-gram
+     * @param table                 little-endian view of the {@code 26^n} log-probabilities; absolute reads only
+     * @param maxLogProbability     highest log-probability, from the file header
+     */
+    MappedNgramTable(int n, FloatBuffer table, float maxLogProbability) {
+        this.n = n;
+        this.table = table;
+        this.maxLogProbability = maxLogProbability;
+    }
+
+    @Override
+    public int length() {
+        return n;
+    }
+
+    @Override
+    public float logProbability(int index) {
+        return table.get(index);
+    }
+
+    @Override
+    public float maxLogProbability() {
+        return maxLogProbability;
+    }
+}
@@ -1,44 +1,215 @@
 package src.fitness;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.util.HashMap;
-import java.util.stream.IntStream;
+/**
+ * Log-probability n-gram model backed by an {@link NgramTable} of {@code 26^n} slots, dense or sparse,
+ * indexed by the base-26 code of the n-gram ({@code "AB"} is {@code 0 * 26 + 1}).
+ * <p>
+ * N-grams missing from the data file score {@link #FLOOR}.
+ * <p>
+ * Over a {@link QuantizedNgramTable}, {@link #score(int[], int)} sums the integer codes and converts the total once.
+ * <p>
+ * As a {@link Fitness}, models are named {@code bigram}, {@code trigram}, {@code quadgram}, {@code pentagram} and {@code hexagram}.
+ */
+public class Ngram implements Fitness {
+    public static final float FLOOR = -12.0f;
+
+    /**
+     * Slack given to bounds, so that rounding in the order of summation never rejects a score that would reach the threshold.
+     */
+    public static final double BOUND_MARGIN = 1e-6;
 
-public class Ngram {
     private final int n;
-    private final HashMap<String, Double> ngramMap;
+    // 26^(n - 1): the rolling index drops its oldest letter as index % prefixSlots before shifting, so 6-gram indices never overflow
+    private final int prefixSlots;
+    private final NgramTable table;
+    private final float maxLogProbability;
+    private final QuantizedNgramTable quantized;
 
+    /**
+     * Shares the table of {@link NgramRegistry#get(int)}, which is loaded on first use.
+     *
+     * @param ngram     no. of letters per n-gram, 2 - 6
+     *
+     * @see NgramRegistry
+     */
     public Ngram(int ngram) {
-        String n = switch (ngram) {
-            case 2 -> "bi";
-            case 3 -> "tri";
-            case 4 -> "quad";
-            default -> throw new IllegalArgumentException("Unsupported ngram. Currently 1, 2, or 3 only.");
+        this(NgramRegistry.get(ngram).table);
+    }
+
+    /**
+     * @param table     log-probabilities to score with
+     */
+    public Ngram(NgramTable table) {
+        this.n = table.length();
+        this.prefixSlots = NgramFiles.slots(n) / 26;
+        this.table = table;
+        this.maxLogProbability = table.maxLogProbability();
+        this.quantized = (table instanceof QuantizedNgramTable q) ? q : null;
+    }
+
+    public int length() {
+        return n;
+    }
+
+    public NgramTable getTable() {
+        return table;
+    }
+
+    @Override
+    public String name() {
+        return switch (n) {
+            case 2 -> "bigram";
+            case 3 -> "trigram";
+            case 4 -> "quadgram";
+            case 5 -> "pentagram";
+            case 6 -> "hexagram";
+            default -> n + "-gram";
         };
+    }
 
-        this.n = ngram;
-        this.ngramMap = new HashMap<>();
+    /**
+     * @param ngram     uppercase n-gram of length {@link #length()}
+     * @return          base-26 table index of {@code ngram}
+     */
+    public int indexOf(String ngram) {
+        return indexOf(ngram, n);
+    }
 
-        try {
-            Files.lines(new File("data/" + n + "grams.txt").toPath())
-                    .map(l -> l.split(","))
-                    .forEach(l -> ngramMap.put(l[0], Double.valueOf(l[1])));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * @param index     base-26 table index, see {@link #indexOf(String)}
+     * @return          log-probability of the n-gram, or {@link #FLOOR} if it was not in the data file
+     */
+    public float logProbability(int index) {
+        return table.logProbability(index);
     }
 
+    /**
+     * @return  highest log-probability of any n-gram, the most a single window can add to a score
+     */
+    public float maxLogProbability() {
+        return maxLogProbability;
+    }
+
+    private static int indexOf(String ngram, int n) {
+        int index = 0;
+        for (int i = 0; i < n; i++) index = index * 26 + (ngram.charAt(i) - 'A');
+        return index;
+    }
+
+    /**
+     * Windows containing anything other than {@code A - Z} score {@link #FLOOR}.
+     *
+     * @param text  uppercase text
+     * @return      sum of the log-probabilities of every n-gram window
+     */
     public Double score(String text) {
-        return IntStream
-                .range(0, text.length() - (n - 1))
-                .mapToObj(i -> text.substring(i, n + i))
-                .mapToDouble(nmap -> {
-                    Double val = ngramMap.get(nmap);
-                    return (val != null) ? val : -12.0;
-                })
-                .sum();
+        double score = 0;
+        int index = 0;
+        int run = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            int c = text.charAt(i) - 'A';
+
+            if (c < 0 || c >= 26) {
+                run = 0;
+            } else {
+                index = index % prefixSlots * 26 + c;
+                run++;
+            }
+
+            if (i >= n - 1) score += (run >= n) ? table.logProbability(index) : FLOOR;
+        }
+
+        return score;
+    }
+
+    /**
+     * Scores a buffer of letter indices with a rolling base-26 index, without building any substrings.
+     *
+     * @param letters   letter indices, 0 - 25
+     * @param length    no. of letters to score
+     * @return          sum of the log-probabilities of every n-gram window
+     */
+    @Override
+    public double score(int[] letters, int length) {
+        if (quantized != null) return quantizedScore(letters, length);
+
+        double score = 0;
+        int index = 0;
+
+        for (int i = 0; i < n - 1 && i < length; i++) index = index * 26 + letters[i];
+
+        for (int i = n - 1; i < length; i++) {
+            index = index % prefixSlots * 26 + letters[i];
+            score += table.logProbability(index);
+        }
+
+        return score;
+    }
+
+    /**
+     * Same as {@link #score(int[], int)}, but gives up as soon as the score cannot reach {@code threshold}:
+     * every {@link IoC#CHECK_INTERVAL} windows, the score so far plus {@link #maxLogProbability()} for each window
+     * still to come is compared against it.
+     *
+     * @param letters       letter indices, 0 - 25
+     * @param length        no. of letters to score
+     * @param threshold     score to reach
+     * @return              sum of the log-probabilities of every n-gram window, or {@link Double#NEGATIVE_INFINITY}
+     *                      if it is certainly below {@code threshold}
+     */
+    @Override
+    public double score(int[] letters, int length, double threshold) {
+        if (quantized != null) return quantizedScore(letters, length, threshold);
+
+        double score = 0;
+        int index = 0;
+
+        for (int i = 0; i < n - 1 && i < length; i++) index = index * 26 + letters[i];
+
+        for (int i = n - 1; i < length; i++) {
+            index = index % prefixSlots * 26 + letters[i];
+            score += table.logProbability(index);
+
+            if ((i - n + 2) % IoC.CHECK_INTERVAL == 0
+                    && score + (double) (length - 1 - i) * maxLogProbability + BOUND_MARGIN < threshold) {
+                return Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        return score;
     }
 
+    private double quantizedScore(int[] letters, int length) {
+        long codes = 0;
+        int index = 0;
+
+        for (int i = 0; i < n - 1 && i < length; i++) index = index * 26 + letters[i];
+
+        for (int i = n - 1; i < length; i++) {
+            index = index % prefixSlots * 26 + letters[i];
+            codes += quantized.code(index);
+        }
+
+        return quantized.score(codes, length - n + 1);
+    }
+
+    private double quantizedScore(int[] letters, int length, double threshold) {
+        long codes = 0;
+        int index = 0;
+
+        for (int i = 0; i < n - 1 && i < length; i++) index = index * 26 + letters[i];
+
+        for (int i = n - 1; i < length; i++) {
+            index = index % prefixSlots * 26 + letters[i];
+            codes += quantized.code(index);
+
+            if ((i - n + 2) % IoC.CHECK_INTERVAL == 0
+                    && quantized.score(codes, i - n + 2) + (double) (length - 1 - i) * maxLogProbability + BOUND_MARGIN < threshold) {
+                return Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        return quantized.score(codes, length - n + 1);
+    }
 }
@@ -0,0 +1,316 @@
+package src.fitness;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * {@link NgramFiles} reads and writes n-gram tables.
+ * <p>
+ * The text format is the one under {@code data/}: one {@code NGRAM,log-probability} line per known n-gram,
+ * every other n-gram scoring {@link Ngram#FLOOR}.
+ * <p>
+ * Tables of up to {@link #MAX_DENSE_LENGTH} letters are dense, one slot per possible n-gram; longer ones are
+ * {@link SparseNgramTable sparse}, keeping only the n-grams of the source.
+ * <p>
+ * The binary format can be memory-mapped as is, all little-endian:
+ * <pre>
+ *  offset  0   magic       "NGRM"
+ *  offset  4   int32       format version, {@link #VERSION} for dense tables, {@link #SPARSE_VERSION} for sparse ones
+ *  offset  8   int32       n
+ *  offset 12   float32     floor given to n-grams missing from the source
+ *  offset 16   float32     highest log-probability
+ *  offset 20   int32       sparse: no. of n-grams kept, {@code count}; dense: reserved, zero
+ *  offset 24   8 bytes     reserved, zero
+ *  offset 32   dense:      float32 log-probability of every n-gram, {@code 26^n} of them, by base-26 index
+ *              sparse:     int32 base-26 index of every n-gram kept, ascending, {@code count} of them,
+ *                          then float32 log-probability of each
+ * </pre>
+ * Run {@code java src.fitness.NgramFiles data/quadgrams.txt 4 data/quadgrams.bin} to convert a text table.
+ *
+ * @see #readText(Path, int)
+ * @see #writeBinary(NgramTable, Path)
+ * @see #map(Path)
+ */
+public class NgramFiles {
+    public static final int VERSION = 1;
+    public static final int SPARSE_VERSION = 2;
+    public static final int HEADER_SIZE = 32;
+
+    /**
+     * Longest n-gram read into a dense table; a dense 5-gram table takes 47 MB, a 6-gram one would take 1.2 GB.
+     */
+    public static final int MAX_DENSE_LENGTH = 5;
+
+    private static final byte[] MAGIC = {'N', 'G', 'R', 'M'};
+
+    /**
+     * @param n     no. of letters per n-gram, 1 - 6
+     * @return      {@code 26^n}
+     */
+    public static int slots(int n) {
+        if (n < 1 || n > 6) throw new IllegalArgumentException("`n` must be within 1-6 inclusive (passed `" + n + "`)");
+
+        int slots = 1;
+        for (int i = 0; i < n; i++) slots *= 26;
+        return slots;
+    }
+
+    /**
+     * @param file  text table
+     * @param n     no. of letters per n-gram
+     * @return      the table on the heap, sparse if {@code n} is over {@link #MAX_DENSE_LENGTH}
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public static NgramTable readText(Path file, int n) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            return readText(reader, n, file.toString());
+        }
+    }
+
+    /**
+     * @param reader    text table, not closed
+     * @param n         no. of letters per n-gram
+     * @param source    name of the source, for error messages
+     * @return          the table on the heap, sparse if {@code n} is over {@link #MAX_DENSE_LENGTH}
+     * @throws IOException if reading fails or a line is malformed
+     */
+    public static NgramTable readText(BufferedReader reader, int n, String source) throws IOException {
+        boolean dense = n <= MAX_DENSE_LENGTH;
+        float[] table = dense ? new float[slots(n)] : null;
+        if (dense) Arrays.fill(table, Ngram.FLOOR);
+
+        // sparse: base-26 index in the high half and line order in the low half, so sorting keeps the last of duplicates last
+        long[] keys = dense ? null : new long[1 << 16];
+        float[] values = dense ? null : new float[1 << 16];
+        int count = 0;
+
+        String line;
+        int lineNo = 0;
+
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isEmpty()) continue;
+
+            int comma = line.indexOf(',');
+            if (comma != n) throw new IOException(source + ":" + lineNo + ": expected `" + "X".repeat(n) + ",log-probability`");
+
+            int index = 0;
+            for (int i = 0; i < n; i++) {
+                int c = line.charAt(i) - 'A';
+                if (c < 0 || c >= 26) throw new IOException(source + ":" + lineNo + ": n-gram must be uppercase letters");
+                index = index * 26 + c;
+            }
+
+            float logProbability;
+            try {
+                logProbability = Float.parseFloat(line.substring(comma + 1));
+            } catch (NumberFormatException e) {
+                throw new IOException(source + ":" + lineNo + ": " + e.getMessage(), e);
+            }
+
+            if (dense) {
+                table[index] = logProbability;
+            } else {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2);
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                keys[count] = (long) index << 32 | count;
+                values[count++] = logProbability;
+            }
+        }
+
+        return dense ? new DenseNgramTable(n, table) : sparseTable(n, keys, values, count);
+    }
+
+    private static SparseNgramTable sparseTable(int n, long[] keys, float[] values, int count) {
+        Arrays.sort(keys, 0, count);
+
+        int[] indices = new int[count];
+        float[] logProbabilities = new float[count];
+        int kept = 0;
+
+        for (int i = 0; i < count; i++) {
+            int index = (int) (keys[i] >>> 32);
+            if (i + 1 < count && (int) (keys[i + 1] >>> 32) == index) continue;
+
+            indices[kept] = index;
+            logProbabilities[kept++] = values[(int) keys[i]];
+        }
+
+        return new SparseNgramTable(n, Arrays.copyOf(indices, kept), Arrays.copyOf(logProbabilities, kept));
+    }
+
+    /**
+     * Reads a binary table onto the heap, for sources that cannot be mapped such as resources inside a jar.
+     *
+     * @param in        binary table, not closed
+     * @param source    name of the source, for error messages
+     * @return          the table on the heap
+     * @throws IOException if reading fails or the input is not a valid binary table
+     */
+    public static NgramTable readBinary(InputStream in, String source) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(in.readNBytes(HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+        int n = verifyHeader(header, source);
+
+        if (header.getInt(4) == SPARSE_VERSION) {
+            int count = header.getInt(20);
+            if (count < 0 || count > slots(n)) throw new IOException(source + ": invalid n-gram count `" + count + "`");
+            if (8L * count > Integer.MAX_VALUE - 8) throw new IOException(source + ": too large to read onto the heap, map it instead");
+
+            ByteBuffer body = ByteBuffer.wrap(in.readNBytes(8 * count)).order(ByteOrder.LITTLE_ENDIAN);
+            if (body.limit() != 8 * count || in.read() != -1) throw new IOException(source + ": size does not match a sparse " + n + "-gram table");
+
+            int[] indices = new int[count];
+            float[] logProbabilities = new float[count];
+            body.asIntBuffer().get(indices);
+            body.position(4 * count);
+            body.asFloatBuffer().get(logProbabilities);
+
+            return sparseTable(n, indices, logProbabilities, source);
+        }
+
+        float[] table = new float[slots(n)];
+        byte[] bytes = new byte[1 << 16];
+        int read = 0;
+
+        while (read < table.length) {
+            int count = Math.min(bytes.length / 4, table.length - read);
+            if (in.readNBytes(bytes, 0, count * 4) != count * 4) throw new IOException(source + ": size does not match a " + n + "-gram table");
+
+            ByteBuffer.wrap(bytes, 0, count * 4).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(table, read, count);
+            read += count;
+        }
+        if (in.read() != -1) throw new IOException(source + ": size does not match a " + n + "-gram table");
+
+        return new DenseNgramTable(n, table);
+    }
+
+    /**
+     * @param table     table to write
+     * @param file      binary file to write, created or truncated
+     * @throws IOException if writing fails
+     */
+    public static void writeBinary(NgramTable table, Path file) throws IOException {
+        SparseNgramTable sparse = (table instanceof SparseNgramTable t) ? t : null;
+        int values = (sparse != null) ? sparse.count() : slots(table.length());
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).putInt(sparse != null ? SPARSE_VERSION : VERSION).putInt(table.length())
+                    .putFloat(Ngram.FLOOR).putFloat(table.maxLogProbability()).putInt(sparse != null ? values : 0);
+            header.clear();
+            while (header.hasRemaining()) out.write(header);
+
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            if (sparse != null) {
+                for (int i = 0; i < values; i++) write(out, buffer.putInt(sparse.indexAt(i)), i == values - 1);
+                for (int i = 0; i < values; i++) write(out, buffer.putFloat(sparse.logProbabilityAt(i)), i == values - 1);
+            } else {
+                for (int i = 0; i < values; i++) write(out, buffer.putFloat(table.logProbability(i)), i == values - 1);
+            }
+        }
+    }
+
+    /**
+     * Writes {@code buffer} out once it is full or {@code last} is set.
+     */
+    private static void write(FileChannel out, ByteBuffer buffer, boolean last) throws IOException {
+        if (buffer.hasRemaining() && !last) return;
+
+        buffer.flip();
+        while (buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Maps a binary table read-only. The mapping stays valid after the file is closed.
+     *
+     * @param file  binary table
+     * @return      the table, backed by the mapping
+     * @throws IOException if the file cannot be read or is not a valid binary table
+     */
+    public static NgramTable map(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (in.size() < HEADER_SIZE) throw new IOException(file + ": not an n-gram table");
+
+            MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            int n = verifyHeader(mapped, file.toString());
+
+            if (mapped.getInt(4) == SPARSE_VERSION) {
+                int count = mapped.getInt(20);
+                if (count < 0 || count > slots(n) || in.size() != HEADER_SIZE + 8L * count) throw new IOException(file + ": size does not match a sparse " + n + "-gram table");
+
+                try {
+                    return new SparseNgramTable(n,
+                            mapped.slice(HEADER_SIZE, 4 * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                            mapped.slice(HEADER_SIZE + 4 * count, 4 * count).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ": " + e.getMessage(), e);
+                }
+            }
+
+            if (in.size() != HEADER_SIZE + 4L * slots(n)) throw new IOException(file + ": size does not match a " + n + "-gram table");
+
+            return new MappedNgramTable(n, mapped.slice(HEADER_SIZE, 4 * slots(n)).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer(),
+                    mapped.getFloat(16));
+        }
+    }
+
+    private static SparseNgramTable sparseTable(int n, int[] indices, float[] logProbabilities, String source) throws IOException {
+        try {
+            return new SparseNgramTable(n, indices, logProbabilities);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(source + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param header    little-endian buffer holding at least the header
+     * @return          n
+     * @throws IOException if the header is not the one of a binary table of a supported version
+     */
+    private static int verifyHeader(ByteBuffer header, String source) throws IOException {
+        if (header.limit() < HEADER_SIZE) throw new IOException(source + ": not an n-gram table");
+
+        byte[] magic = new byte[MAGIC.length];
+        header.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException(source + ": not an n-gram table");
+
+        int version = header.getInt(4);
+        if (version != VERSION && version != SPARSE_VERSION) throw new IOException(source + ": unsupported n-gram table version `" + version + "`");
+
+        int n = header.getInt(8);
+        if (n < 1 || n > 6) throw new IOException(source + ": unsupported n `" + n + "`");
+        return n;
+    }
+
+    /**
+     * Converts a text table to the binary format.
+     * <p>
+     * Usage: {@code NgramFiles <text file> <n> <binary file>}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: NgramFiles <text file> <n> <binary file>");
+            System.exit(2);
+        }
+
+        NgramTable table = readText(Path.of(args[0]), Integer.parseInt(args[1]));
+        writeBinary(table, Path.of(args[2]));
+        System.out.println("wrote " + args[2]);
+    }
+}
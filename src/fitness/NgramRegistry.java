@@ -0,0 +1,164 @@
+package src.fitness;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link NgramRegistry} loads each n-gram model once per JVM, on first use, and shares it between every thread
+ * and {@link src.machine.Decryptor}. Models are immutable, so sharing them needs no locking.
+ * <p>
+ * A table named {@code <bi|tri|quad|penta|hexa>grams} is looked up, binary ({@code .bin}, see {@link NgramFiles}) before text
+ * ({@code .txt}), in this order:
+ * <ol>
+ *     <li>the directory set with {@link #setDirectory(Path)}, or the {@code ngram.dir} system property</li>
+ *     <li>the classpath, under {@code /data/}</li>
+ *     <li>{@code data/} under the working directory</li>
+ * </ol>
+ * Binary files are memory-mapped; binary resources inside a jar are read onto the heap. No 5- or 6-gram tables
+ * ship under {@code data/}: convert one with {@link NgramFiles#main(String[])}, which writes 5-grams dense (47 MB)
+ * and 6-grams {@link SparseNgramTable sparse}.
+ *
+ * @see #get(int)
+ */
+public final class NgramRegistry {
+    private static final Map<Integer, Ngram> MODELS = new ConcurrentHashMap<>();
+
+    private static volatile Path directory = System.getProperty("ngram.dir") == null ? null : Path.of(System.getProperty("ngram.dir"));
+
+    private NgramRegistry() {
+    }
+
+    /**
+     * @param ngram     no. of letters per n-gram, 2 - 6
+     * @return          the shared model, loaded on the first call
+     * @throws IllegalArgumentException if {@code ngram} is not supported
+     */
+    public static Ngram get(int ngram) {
+        verifySupported(ngram);
+        return MODELS.computeIfAbsent(ngram, n -> new Ngram(load(n)));
+    }
+
+    /**
+     * @param ngram     no. of letters per n-gram
+     * @return          {@code true} if the model has been loaded already
+     */
+    public static boolean isLoaded(int ngram) {
+        return MODELS.containsKey(ngram);
+    }
+
+    /**
+     * Sets the directory searched first. Models loaded already are kept.
+     *
+     * @param directory     directory holding the tables, or {@code null} to search only the classpath and {@code data/}
+     */
+    public static void setDirectory(Path directory) {
+        NgramRegistry.directory = directory;
+    }
+
+    public static Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param ngram     no. of letters per n-gram
+     * @throws IllegalArgumentException if {@code ngram} is not supported
+     */
+    public static void verifySupported(int ngram) {
+        nameOf(ngram);
+    }
+
+    /**
+     * Loads a table without caching it, searching the same places as {@link #get(int)}.
+     *
+     * @param ngram     no. of letters per n-gram, 2 - 6
+     * @return          the table
+     * @throws RuntimeException wrapping the {@link IOException} if no table is found or it cannot be read
+     */
+    static NgramTable load(int ngram) {
+        String name = nameOf(ngram) + "grams";
+
+        try {
+            Path dir = directory;
+            if (dir != null) {
+                NgramTable table = loadFile(dir, name, ngram);
+                if (table != null) return table;
+            }
+
+            NgramTable table = loadResource(name, ngram);
+            if (table != null) return table;
+
+            table = loadFile(Path.of("data"), name, ngram);
+            if (table != null) return table;
+
+            throw new IOException("no " + name + ".bin or " + name + ".txt found");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static NgramTable loadFile(Path dir, String name, int ngram) throws IOException {
+        Path binary = dir.resolve(name + ".bin");
+        if (Files.exists(binary)) return verifyLength(NgramFiles.map(binary), ngram, binary);
+
+        Path text = dir.resolve(name + ".txt");
+        if (Files.exists(text)) return NgramFiles.readText(text, ngram);
+
+        return null;
+    }
+
+    private static NgramTable loadResource(String name, int ngram) throws IOException {
+        URL binary = NgramRegistry.class.getResource("/data/" + name + ".bin");
+        if (binary != null) {
+            Path file = fileOf(binary);
+            if (file != null) return verifyLength(NgramFiles.map(file), ngram, file);
+
+            try (InputStream in = binary.openStream()) {
+                return verifyLength(NgramFiles.readBinary(in, binary.toString()), ngram, binary);
+            }
+        }
+
+        URL text = NgramRegistry.class.getResource("/data/" + name + ".txt");
+        if (text != null) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(text.openStream(), StandardCharsets.UTF_8))) {
+                return NgramFiles.readText(reader, ngram, text.toString());
+            }
+        }
+
+        return null;
+    }
+
+    private static NgramTable verifyLength(NgramTable table, int ngram, Object source) throws IOException {
+        if (table.length() != ngram) throw new IOException(source + ": holds " + table.length() + "-grams, expected " + ngram + "-grams");
+        return table;
+    }
+
+    private static Path fileOf(URL url) {
+        if (!"file".equals(url.getProtocol())) return null;
+
+        try {
+            return Path.of(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static String nameOf(int ngram) {
+        return switch (ngram) {
+            case 2 -> "bi";
+            case 3 -> "tri";
+            case 4 -> "quad";
+            case 5 -> "penta";
+            case 6 -> "hexa";
+            default -> throw new IllegalArgumentException("Unsupported ngram. Currently 2, 3, 4, 5, or 6 only.");
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package src.fitness;
+
+/**
+ * {@link NgramTable} is the storage behind an {@link Ngram}: the log-probability of every n-gram,
+ * looked up by its base-26 index ({@code "AB"} is {@code 0 * 26 + 1}).
+ * <p>
+ * Implementations are immutable once built and safe to share between threads.
+ *
+ * @see DenseNgramTable
+ * @see MappedNgramTable
+ */
+public interface NgramTable {
+
+    /**
+     * @return  n, the no. of letters per n-gram
+     */
+    int length();
+
+    /**
+     * @param index     base-26 index, 0 - {@code 26^n - 1}
+     * @return          log-probability of the n-gram
+     */
+    float logProbability(int index);
+
+    /**
+     * @return  highest log-probability of any n-gram
+     */
+    float maxLogProbability();
+}
@@ -0,0 +1,180 @@
+package src.fitness;
+
+/**
+ * {@link NgramTable} holding every log-probability as an 8- or 16-bit code on a uniform grid between
+ * the lowest log-probability, normally {@link Ngram#FLOOR}, and the highest:
+ * <pre>
+ *  logProbability = offset + code * step
+ * </pre>
+ * A quadgram table shrinks from 1.8 MB of {@code float}s to 914 KB at 16 bits or 457 KB at 8 bits, small enough to
+ * stay in cache while phase 3 scores. {@link Ngram} and {@link IncrementalNgram} sum the codes as integers and
+ * convert the total with {@link #score(long, int)}.
+ * <p>
+ * Every log-probability is off by at most {@link #maxError()}, so a score over {@code w} windows is off by at most
+ * {@code w * maxError()}. At 16 bits the grid step is about {@code 1.7e-4} for quadgrams; at 8 bits about
+ * {@code 0.04}.
+ *
+ * @see #of(NgramTable, int)
+ */
+public abstract class QuantizedNgramTable implements NgramTable {
+    private final int n;
+    private final float offset;
+    private final float step;
+    private final float maxLogProbability;
+    private final float maxError;
+
+    private QuantizedNgramTable(int n, float offset, float step, float maxLogProbability, float maxError) {
+        this.n = n;
+        this.offset = offset;
+        this.step = step;
+        this.maxLogProbability = maxLogProbability;
+        this.maxError = maxError;
+    }
+
+    /**
+     * @param source    table to quantize, e.g. {@link Ngram#getTable()}, at most {@link NgramFiles#MAX_DENSE_LENGTH} letters long
+     * @param bits      bits per n-gram, 8 or 16
+     * @return          the quantized copy of {@code source}
+     * @throws IllegalArgumentException if {@code bits} is neither 8 nor 16, or {@code source} is too long to be dense
+     */
+    public static QuantizedNgramTable of(NgramTable source, int bits) {
+        if (bits != 8 && bits != 16) throw new IllegalArgumentException("`bits` must be 8 or 16 (passed `" + bits + "`)");
+        if (source.length() > NgramFiles.MAX_DENSE_LENGTH) {
+            throw new IllegalArgumentException("`source` must be at most " + NgramFiles.MAX_DENSE_LENGTH + " letters long (passed `" + source.length() + "`)");
+        }
+
+        int n = source.length();
+        int slots = NgramFiles.slots(n);
+        int maxCode = (1 << bits) - 1;
+
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < slots; i++) {
+            float p = source.logProbability(i);
+            min = Math.min(min, p);
+            max = Math.max(max, p);
+        }
+        float step = (max > min) ? (max - min) / maxCode : 1;
+
+        int[] codes = new int[slots];
+        float maxError = 0;
+        for (int i = 0; i < slots; i++) {
+            float p = source.logProbability(i);
+            codes[i] = Math.min(maxCode, Math.round((p - min) / step));
+            maxError = Math.max(maxError, Math.abs(p - (min + codes[i] * step)));
+        }
+
+        float maxLogProbability = min + maxCode * step;
+        if (bits == 8) {
+            byte[] table = new byte[slots];
+            for (int i = 0; i < slots; i++) table[i] = (byte) codes[i];
+            return new ByteTable(n, min, step, maxLogProbability, maxError, table);
+        }
+
+        short[] table = new short[slots];
+        for (int i = 0; i < slots; i++) table[i] = (short) codes[i];
+        return new ShortTable(n, min, step, maxLogProbability, maxError, table);
+    }
+
+    /**
+     * @param index     base-26 index, 0 - {@code 26^n - 1}
+     * @return          unsigned code of the n-gram
+     */
+    public abstract int code(int index);
+
+    /**
+     * @return  8 or 16
+     */
+    public abstract int bits();
+
+    /**
+     * @return  log-probability of code 0, the lowest in the source table
+     */
+    public float offset() {
+        return offset;
+    }
+
+    /**
+     * @return  log-probability between two consecutive codes
+     */
+    public float step() {
+        return step;
+    }
+
+    /**
+     * @return  highest code, {@code 2^bits - 1}
+     */
+    public int maxCode() {
+        return (1 << bits()) - 1;
+    }
+
+    /**
+     * @param codes     sum of the codes of some windows
+     * @param windows   no. of windows summed
+     * @return          score of those windows, the sum of their log-probabilities
+     */
+    public double score(long codes, int windows) {
+        if (windows <= 0) return 0;
+        return (double) windows * offset + (double) codes * step;
+    }
+
+    /**
+     * @return  largest difference between a log-probability of the source table and its quantized value
+     */
+    public float maxError() {
+        return maxError;
+    }
+
+    @Override
+    public int length() {
+        return n;
+    }
+
+    @Override
+    public float logProbability(int index) {
+        return offset + code(index) * step;
+    }
+
+    @Override
+    public float maxLogProbability() {
+        return maxLogProbability;
+    }
+
+    private static final class ByteTable extends QuantizedNgramTable {
+        private final byte[] table;
+
+        ByteTable(int n, float offset, float step, float maxLogProbability, float maxError, byte[] table) {
+            super(n, offset, step, maxLogProbability, maxError);
+            this.table = table;
+        }
+
+        @Override
+        public int code(int index) {
+            return table[index] & 0xFF;
+        }
+
+        @Override
+        public int bits() {
+            return 8;
+        }
+    }
+
+    private static final class ShortTable extends QuantizedNgramTable {
+        private final short[] table;
+
+        ShortTable(int n, float offset, float step, float maxLogProbability, float maxError, short[] table) {
+            super(n, offset, step, maxLogProbability, maxError);
+            this.table = table;
+        }
+
+        @Override
+        public int code(int index) {
+            return table[index] & 0xFFFF;
+        }
+
+        @Override
+        public int bits() {
+            return 16;
+        }
+    }
+}
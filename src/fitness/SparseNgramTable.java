@@ -0,0 +1,107 @@
+package src.fitness;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * {@link NgramTable} for orders whose dense table would not fit, such as 6-grams with {@code 26^6} slots:
+ * only the n-grams seen in the source are kept, as a sorted array of base-26 indices and a parallel array of
+ * log-probabilities, and a lookup is a binary search. Every other n-gram scores {@link Ngram#FLOOR}.
+ * <p>
+ * The arrays are either on the heap or memory-mapped, see {@link NgramFiles#map(java.nio.file.Path)}.
+ */
+public class SparseNgramTable implements NgramTable {
+    private final int n;
+    private final IntBuffer indices;
+    private final FloatBuffer logProbabilities;
+    private final int count;
+    private final float maxLogProbability;
+
+    /**
+     * @param n                     no. of letters per n-gram
+     * @param indices               base-26 indices of the known n-grams, strictly ascending; not copied
+     * @param logProbabilities      log-probability of each, parallel to {@code indices}; not copied
+     * @throws IllegalArgumentException if the arrays differ in length or {@code indices} is not strictly ascending
+     */
+    public SparseNgramTable(int n, int[] indices, float[] logProbabilities) {
+        this(n, IntBuffer.wrap(indices), FloatBuffer.wrap(logProbabilities));
+    }
+
+    /**
+     * @param n                     no. of letters per n-gram
+     * @param indices               base-26 indices of the known n-grams, strictly ascending; absolute reads only
+     * @param logProbabilities      log-probability of each, parallel to {@code indices}; absolute reads only
+     * @throws IllegalArgumentException if the buffers differ in length or {@code indices} is not strictly ascending
+     */
+    SparseNgramTable(int n, IntBuffer indices, FloatBuffer logProbabilities) {
+        if (indices.limit() != logProbabilities.limit()) {
+            throw new IllegalArgumentException("`indices` and `logProbabilities` must be of the same length");
+        }
+
+        int slots = NgramFiles.slots(n);
+        float max = (indices.limit() < slots) ? Ngram.FLOOR : Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < indices.limit(); i++) {
+            int index = indices.get(i);
+            if (index < 0 || index >= slots || (i > 0 && index <= indices.get(i - 1))) {
+                throw new IllegalArgumentException("`indices` must be strictly ascending within 0-" + (slots - 1) + " (passed `" + index + "` at " + i + ")");
+            }
+            max = Math.max(max, logProbabilities.get(i));
+        }
+
+        this.n = n;
+        this.indices = indices;
+        this.logProbabilities = logProbabilities;
+        this.count = indices.limit();
+        this.maxLogProbability = max;
+    }
+
+    /**
+     * @return  no. of n-grams kept
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @param i     0 - {@link #count()}{@code  - 1}
+     * @return      base-26 index of the {@code i}-th known n-gram
+     */
+    public int indexAt(int i) {
+        return indices.get(i);
+    }
+
+    /**
+     * @param i     0 - {@link #count()}{@code  - 1}
+     * @return      log-probability of the {@code i}-th known n-gram
+     */
+    public float logProbabilityAt(int i) {
+        return logProbabilities.get(i);
+    }
+
+    @Override
+    public int length() {
+        return n;
+    }
+
+    @Override
+    public float logProbability(int index) {
+        int low = 0;
+        int high = count - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int key = indices.get(mid);
+
+            if (key < index) low = mid + 1;
+            else if (key > index) high = mid - 1;
+            else return logProbabilities.get(mid);
+        }
+
+        return Ngram.FLOOR;
+    }
+
+    @Override
+    public float maxLogProbability() {
+        return maxLogProbability;
+    }
+}
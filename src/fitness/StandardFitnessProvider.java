@@ -0,0 +1,39 @@
+package src.fitness;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Provides the built-in fitnesses: {@code ioc}, {@code sinkov}, {@code bigram}, {@code trigram}, {@code quadgram},
+ * {@code pentagram}, {@code hexagram} and {@code interpolated}. Pentagram and hexagram tables are not shipped,
+ * see {@link NgramRegistry}.
+ * <p>
+ * N-gram models come from {@link NgramRegistry} and the interpolated one from {@link InterpolatedNgram#standard()},
+ * so each is built once and shared.
+ */
+public class StandardFitnessProvider implements FitnessProvider {
+    private static final Set<String> NAMES = Collections.unmodifiableSet(
+            new LinkedHashSet<>(List.of("ioc", "sinkov", "bigram", "trigram", "quadgram", "pentagram", "hexagram", "interpolated")));
+
+    @Override
+    public Set<String> names() {
+        return NAMES;
+    }
+
+    @Override
+    public Fitness create(String name) {
+        return switch (name) {
+            case "ioc" -> IocFitness.INSTANCE;
+            case "sinkov" -> SinkovFitness.INSTANCE;
+            case "bigram" -> NgramRegistry.get(2);
+            case "trigram" -> NgramRegistry.get(3);
+            case "quadgram" -> NgramRegistry.get(4);
+            case "pentagram" -> NgramRegistry.get(5);
+            case "hexagram" -> NgramRegistry.get(6);
+            case "interpolated" -> InterpolatedNgram.standard();
+            default -> throw new IllegalArgumentException("unknown fitness `" + name + "`");
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package src.fitness;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link TieredFitness} runs a cheap {@link Fitness} first and only calls the expensive one for letters whose cheap
+ * score reaches a gate, e.g. {@link IocFitness} in front of a quadgram {@link Ngram}. Letters stopped at the gate
+ * score {@link Double#NEGATIVE_INFINITY}.
+ * <p>
+ * Counts how many scores were stopped and how many passed, to help tune the gate.
+ *
+ * @see #rejected()
+ * @see #passed()
+ */
+public class TieredFitness implements Fitness {
+    private final Fitness cheap;
+    private final double gate;
+    private final Fitness expensive;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder passed = new LongAdder();
+
+    /**
+     * @param cheap         {@link Fitness} run on every call
+     * @param gate          cheap score to reach for {@code expensive} to run
+     * @param expensive     {@link Fitness} whose score is returned
+     */
+    public TieredFitness(Fitness cheap, double gate, Fitness expensive) {
+        if (cheap == null || expensive == null) throw new IllegalArgumentException("`cheap` and `expensive` must not be null");
+        this.cheap = cheap;
+        this.gate = gate;
+        this.expensive = expensive;
+    }
+
+    /**
+     * @return  e.g. {@code "ioc>quadgram"}
+     */
+    @Override
+    public String name() {
+        return cheap.name() + ">" + expensive.name();
+    }
+
+    @Override
+    public double score(int[] letters, int length) {
+        return score(letters, length, Double.NEGATIVE_INFINITY);
+    }
+
+    @Override
+    public double score(int[] letters, int length, double threshold) {
+        if (cheap.score(letters, length, gate) < gate) {
+            rejected.increment();
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        passed.increment();
+        return expensive.score(letters, length, threshold);
+    }
+
+    public Fitness getCheap() {
+        return cheap;
+    }
+
+    public double getGate() {
+        return gate;
+    }
+
+    public Fitness getExpensive() {
+        return expensive;
+    }
+
+    /**
+     * @return  no. of scores stopped at the gate so far
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return  no. of scores that reached the expensive fitness so far
+     */
+    public long passed() {
+        return passed.sum();
+    }
+}
@@ -0,0 +1,156 @@
+package src.fitness;
+
+import java.util.Arrays;
+
+/**
+ * {@link TopKeyHeap} keeps the {@code capacity} best-scoring keys offered to it, as a bounded min-heap
+ * over parallel primitive arrays of packed {@code long} keys and {@code double} scores.
+ * <p>
+ * Keys are ordered by score, and equal scores by key, smaller keys first. The order is total, so the kept keys
+ * do not depend on the order they were offered in, and heaps filled separately can be merged with {@link #offerAll(TopKeyHeap)}.
+ *
+ * @see #offer(long, double)
+ * @see #sortDescending()
+ */
+public class TopKeyHeap {
+    private final int capacity;
+    private final long[] keys;
+    private final double[] scores;
+    private int size;
+    private boolean sorted;
+
+    /**
+     * @param capacity  maximum no. of keys to keep, at least 1
+     */
+    public TopKeyHeap(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("`capacity` must be at least 1 (passed `" + capacity + "`)");
+
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.scores = new double[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return  score of the worst key kept once the heap is full, {@link Double#NEGATIVE_INFINITY} until then
+     */
+    public double threshold() {
+        return (size < capacity) ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * @param key       packed key
+     * @param score     score of {@code key}
+     * @return          {@code true} if the key is kept
+     * @throws IllegalStateException if the heap was already sorted
+     */
+    public boolean offer(long key, double score) {
+        if (sorted) throw new IllegalStateException("heap is already sorted");
+
+        if (size < capacity) {
+            keys[size] = key;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+
+        if (isWorse(keys[0], scores[0], key, score)) {
+            keys[0] = key;
+            scores[0] = score;
+            siftDown(0, size);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Offers every key kept by {@code other}.
+     */
+    public void offerAll(TopKeyHeap other) {
+        for (int i = 0; i < other.size; i++) offer(other.keys[i], other.scores[i]);
+    }
+
+    /**
+     * Sorts the kept keys in place from best to worst. Afterwards the heap can only be read through
+     * {@link #key(int)} and {@link #score(int)}.
+     */
+    public void sortDescending() {
+        if (sorted) return;
+
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+
+        sorted = true;
+    }
+
+    /**
+     * @param i     index, 0 is the best key after {@link #sortDescending()}
+     */
+    public long key(int i) {
+        return keys[i];
+    }
+
+    /**
+     * @param i     index, 0 is the best score after {@link #sortDescending()}
+     */
+    public double score(int i) {
+        return scores[i];
+    }
+
+    public long[] keys() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    public double[] scores() {
+        return Arrays.copyOf(scores, size);
+    }
+
+    private static boolean isWorse(long k1, double s1, long k2, double s2) {
+        int c = Double.compare(s1, s2);
+        return (c != 0) ? c < 0 : k1 > k2;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!isWorse(keys[i], scores[i], keys[parent], scores[parent])) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+
+            if (left < end && isWorse(keys[left], scores[left], keys[worst], scores[worst])) worst = left;
+            if (right < end && isWorse(keys[right], scores[right], keys[worst], scores[worst])) worst = right;
+            if (worst == i) return;
+
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+
+        double s = scores[i];
+        scores[i] = scores[j];
+        scores[j] = s;
+    }
+}
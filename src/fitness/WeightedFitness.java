@@ -0,0 +1,57 @@
+package src.fitness;
+
+import java.util.Arrays;
+
+/**
+ * {@link WeightedFitness} scores letters with the weighted sum of several {@link Fitness}es,
+ * e.g. a trigram and a quadgram model.
+ */
+public class WeightedFitness implements Fitness {
+    private final Fitness[] fitnesses;
+    private final double[] weights;
+
+    /**
+     * @param fitnesses     {@link Fitness}es to combine
+     * @param weights       weight of each, parallel to {@code fitnesses}
+     * @throws IllegalArgumentException if the arrays are empty or differ in length
+     */
+    public WeightedFitness(Fitness[] fitnesses, double[] weights) {
+        if (fitnesses.length == 0 || fitnesses.length != weights.length) {
+            throw new IllegalArgumentException("`fitnesses` and `weights` must be non-empty and of the same length");
+        }
+        this.fitnesses = fitnesses.clone();
+        this.weights = weights.clone();
+    }
+
+    /**
+     * @return  e.g. {@code "0.5*trigram+1.0*quadgram"}
+     */
+    @Override
+    public String name() {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < fitnesses.length; i++) {
+            if (i > 0) name.append('+');
+            name.append(weights[i]).append('*').append(fitnesses[i].name());
+        }
+        return name.toString();
+    }
+
+    @Override
+    public double score(int[] letters, int length) {
+        double score = 0;
+        for (int i = 0; i < fitnesses.length; i++) score += weights[i] * fitnesses[i].score(letters, length);
+        return score;
+    }
+
+    public Fitness[] getFitnesses() {
+        return fitnesses.clone();
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    public String toString() {
+        return String.format("WeightedFitness(fitnesses=%s, weights=%s)", Arrays.toString(fitnesses), Arrays.toString(weights));
+    }
+}
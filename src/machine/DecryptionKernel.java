@@ -0,0 +1,73 @@
+package src.machine;
+
+import src.fitness.IoC;
+
+import java.util.Arrays;
+
+/**
+ * {@link DecryptionKernel} decrypts a pre-cleaned ciphertext straight into a reusable letter histogram
+ * and returns its fitness, without producing any {@link String} or allocating per key.
+ * <p>
+ * The histogram is reused by every call, so a kernel must not be shared between threads.
+ *
+ * @see #ioc(ScramblerTable, int)
+ * @see #ioc(ScramblerTable, int, double)
+ */
+public class DecryptionKernel {
+    private final int[] letters;
+    private final int[] histogram = new int[26];
+    private final IoC.LetterCounter decryptor = this::decryptBlock;
+
+    // walk of the current bounded call
+    private ScramblerTable table;
+    private int state;
+
+    /**
+     * @param letters   ciphertext letter indices, 0 - 25; shared, never modified
+     */
+    public DecryptionKernel(int[] letters) {
+        this.letters = letters;
+    }
+
+    /**
+     * @param table     scrambler table of the wheel order and ring setting to try
+     * @param start     rotor state before the first character, see {@link ScramblerTable#stateOf(int, int, int)}
+     * @return          index of coincidence of the decryption
+     */
+    public float ioc(ScramblerTable table, int start) {
+        Arrays.fill(histogram, 0);
+
+        int state = start;
+        for (int letter : letters) {
+            state = table.successor(state);
+            histogram[table.scramble(state, letter)]++;
+        }
+
+        return IoC.fitness(histogram);
+    }
+
+    /**
+     * Same as {@link #ioc(ScramblerTable, int)}, but stops decrypting as soon as the score cannot reach {@code threshold},
+     * see {@link IoC#fitness(IoC.LetterCounter, int, int[], double)}.
+     *
+     * @param table         scrambler table of the wheel order and ring setting to try
+     * @param start         rotor state before the first character
+     * @param threshold     score to reach, e.g. {@link src.fitness.TopKeyHeap#threshold()}
+     * @return              index of coincidence of the decryption, or {@link Float#NEGATIVE_INFINITY} if it is certainly
+     *                      below {@code threshold}
+     */
+    public float ioc(ScramblerTable table, int start, double threshold) {
+        this.table = table;
+        this.state = start;
+        return IoC.fitness(decryptor, letters.length, histogram, threshold);
+    }
+
+    private void decryptBlock(int from, int to, int[] histogram) {
+        int state = this.state;
+        for (int i = from; i < to; i++) {
+            state = table.successor(state);
+            histogram[table.scramble(state, letters[i])]++;
+        }
+        this.state = state;
+    }
+}
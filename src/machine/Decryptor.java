@@ -1,18 +1,41 @@
 package src.machine;
 
-import src.fitness.IoC;
+import src.fitness.Fitness;
+import src.fitness.IncrementalNgram;
+import src.fitness.IocAccumulator;
 import src.fitness.Ngram;
+import src.fitness.NgramRegistry;
 import src.fitness.ScoredEnigmaKey;
+import src.fitness.TopKeyHeap;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class Decryptor {
-
+    /**
+     * All 60 orders of three distinct wheels out of I - V, in the order phase 1 tries them.
+     * Phase 1 packs keys as {@code wheelOrderIndex * 17576 + state}, so the table is never handed out; see {@link #wheelOrder(int)}.
+     */
+    private static final String[][] WHEEL_ORDERS = wheelOrders("I", "II", "III", "IV", "V");
 
     private final String ciphertext;
-    private final Ngram ngram;
+    private final int[] letters;
+    private final int ngramLength;
     private final int limit;
+    private final ExecutorService executor;
+    private int candidates = 3000;
+    private int screeningPrefix = 0;
+    private int shortlist = 0;
+    private Fitness positionFitness;
+    private Fitness ringFitness;
+    private Fitness plugboardFitness;
+    private final LongAdder screenedKeys = new LongAdder();
+    private final LongAdder promotedKeys = new LongAdder();
 
 
     /**
@@ -40,9 +63,166 @@ public class Decryptor {
      * @param limit         maximum no. of keys to test in phases 2 and 3, ideally at least 2</br>
      */
     public Decryptor(String ciphertext, int ngram, int limit) {
+        this(ciphertext, ngram, limit, null);
+    }
+
+    /**
+     * Same as {@link #Decryptor(String, int, int)}, but runs phase 1 per wheel order and phases 2 and 3
+     * per candidate key as tasks on {@code executor}.
+     * <p>
+     * Results are collected in submission order, so the returned keys are the same as in a sequential run.
+     * The caller owns {@code executor} and is responsible for shutting it down.
+     *
+     * @param ciphertext    the encrypted text to decipher
+     * @param ngram         n-gram length used to score keys during phase 3
+     * @param limit         maximum no. of keys to test in phases 2 and 3, ideally at least 2
+     * @param executor      {@link ExecutorService} to run the tasks on, or {@code null} to run sequentially
+     *
+     * @see #Decryptor(String, int, int)
+     */
+    public Decryptor(String ciphertext, int ngram, int limit, ExecutorService executor) {
         this.ciphertext = clean(ciphertext);
-        this.ngram = new Ngram(ngram);
+        this.letters = this.ciphertext.chars().map(c -> c - 'A').toArray();
+        NgramRegistry.verifySupported(ngram);
+        this.ngramLength = ngram;
         this.limit = limit;
+        this.executor = executor;
+    }
+
+    /**
+     * @return  no. of wheel orders phase 1 tries
+     */
+    public static int wheelOrderCount() {
+        return WHEEL_ORDERS.length;
+    }
+
+    /**
+     * @param index     0 - {@link #wheelOrderCount()}{@code  - 1}, in the order phase 1 tries them
+     * @return          copy of the wheel order, e.g. {@code ["I", "II", "III"]}
+     * @throws IllegalArgumentException if {@code index} is out of range
+     */
+    public static String[] wheelOrder(int index) {
+        if (index < 0 || index >= WHEEL_ORDERS.length) {
+            throw new IllegalArgumentException("`index` must be within 0-" + (WHEEL_ORDERS.length - 1) + " inclusive (passed `" + index + "`)");
+        }
+        return WHEEL_ORDERS[index].clone();
+    }
+
+    /**
+     * @return  the shared n-gram model of phase 3, loaded by {@link NgramRegistry} on first use
+     */
+    protected Ngram ngram() {
+        return NgramRegistry.get(ngramLength);
+    }
+
+    /**
+     * @param candidates    no. of best wheel order & rotor position keys kept by phase 1, 3,000 by default
+     * @throws IllegalArgumentException if {@code candidates} is less than 1
+     *
+     * @see #bestWheelOrderAndRotorPositionKeys()
+     */
+    public void setCandidates(int candidates) {
+        if (candidates < 1) throw new IllegalArgumentException("`candidates` must be at least 1 (passed `" + candidates + "`)");
+        this.candidates = candidates;
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Turns on prefix screening in phase 1: every start position is first scored on the first {@code prefixLength}
+     * letters only, and just the best {@code shortlistSize} of each wheel order are scored again on the full
+     * ciphertext. Worth it for long messages, where a few hundred letters already tell random keys apart.
+     *
+     * @param prefixLength      no. of letters to screen on, at least 2 as the index of coincidence of a single letter
+     *                          is undefined, or 0 to turn screening off (the default)
+     * @param shortlistSize     no. of start positions per wheel order promoted to the full ciphertext
+     * @throws IllegalArgumentException if {@code prefixLength} is negative or 1, or {@code shortlistSize} is less than 1
+     *
+     * @see #bestWheelOrderAndRotorPositionKeys()
+     */
+    public void setScreening(int prefixLength, int shortlistSize) {
+        if (prefixLength < 0 || prefixLength == 1) throw new IllegalArgumentException("`prefixLength` must be 0 or at least 2 (passed `" + prefixLength + "`)");
+        if (shortlistSize < 1) throw new IllegalArgumentException("`shortlistSize` must be at least 1 (passed `" + shortlistSize + "`)");
+        this.screeningPrefix = prefixLength;
+        this.shortlist = shortlistSize;
+    }
+
+    public int getScreeningPrefix() {
+        return screeningPrefix;
+    }
+
+    public int getShortlistSize() {
+        return shortlist;
+    }
+
+    /**
+     * Replaces the index of coincidence of phase 1 with {@code fitness}. Custom fitnesses decrypt every start
+     * position into a buffer, so they are slower than the built-in kernel; a {@link src.fitness.TieredFitness}
+     * keeps the cost down by running an expensive model only where a cheap one passes.
+     *
+     * @param fitness   {@link Fitness} to rank wheel orders and rotor positions by, or {@code null} for the built-in index of coincidence
+     *
+     * @see #bestWheelOrderAndRotorPositionKeys()
+     */
+    public void setPositionFitness(Fitness fitness) {
+        this.positionFitness = fitness;
+    }
+
+    public Fitness getPositionFitness() {
+        return positionFitness;
+    }
+
+    /**
+     * @param fitness   {@link Fitness} to rank ring settings by in phase 2, or {@code null} for the built-in index of coincidence
+     *
+     * @see #bestRingSettingKeys(List)
+     */
+    public void setRingFitness(Fitness fitness) {
+        this.ringFitness = fitness;
+    }
+
+    public Fitness getRingFitness() {
+        return ringFitness;
+    }
+
+    /**
+     * N-gram models keep the incremental rescoring of phase 3; any other fitness rescores the whole decryption per trial.
+     *
+     * @param fitness   {@link Fitness} to rank plugboard pairs by in phase 3, or {@code null} for the n-gram model passed to the constructor
+     *
+     * @see #bestPlugboardKeys(List)
+     */
+    public void setPlugboardFitness(Fitness fitness) {
+        this.plugboardFitness = fitness;
+    }
+
+    public Fitness getPlugboardFitness() {
+        return plugboardFitness;
+    }
+
+    /**
+     * @return  no. of keys scored on the screening prefix by the last {@link #bestWheelOrderAndRotorPositionKeys()},
+     *          0 if it did not screen
+     */
+    public long getScreenedKeys() {
+        return screenedKeys.sum();
+    }
+
+    /**
+     * @return  no. of keys the screening of the last {@link #bestWheelOrderAndRotorPositionKeys()} promoted to
+     *          the full ciphertext, 0 if it did not screen
+     */
+    public long getPromotedKeys() {
+        return promotedKeys.sum();
+    }
+
+    /**
+     * @return  {@code true} if phase 1 screens on a prefix, i.e. it is set and shorter than the ciphertext
+     */
+    protected boolean isScreening() {
+        return screeningPrefix > 0 && screeningPrefix < letters.length && shortlist < ScramblerTable.STATE_COUNT;
     }
 
     /**
@@ -78,57 +258,129 @@ public class Decryptor {
      * <p>
      * In {@link #decrypt()}, this method is called first and then passed to {@link #bestRingSettingKeys(List)}.
      * <p>
-     * By far the most expensive step, averaging 10 keys per 60 wheel combination.
+     * By far the most expensive step. The scrambler permutation of every rotor state is built once per wheel order
+     * in a {@link ScramblerTable}, and each of the 17,576 start positions is then decrypted as a walk over that
+     * shared table, straight into the histogram of a {@link DecryptionKernel}. Once the heap is full, a start position
+     * is dropped as soon as the upper bound of its score falls below the worst key kept.
+     * <p>
+     * The best {@link #setCandidates(int) candidates} keys over all 60 wheel orders are kept in a {@link TopKeyHeap}.
+     * <p>
+     * With {@link #setScreening(int, int) screening} on, the start positions are first ranked on a prefix of the
+     * ciphertext and only a shortlist of each wheel order is decrypted in full; the no. of keys promoted is printed
+     * and kept for {@link #getPromotedKeys()}.
      *
-     * @return {@link List} of {@link ScoredEnigmaKey} of cracked {@code wheel} and  {@code positions}.
+     * @return {@link List} of {@link ScoredEnigmaKey} of cracked {@code wheel} and  {@code positions}, sorted in descending order.
      * 
      * @see #decrypt()
      */
     public List<ScoredEnigmaKey> bestWheelOrderAndRotorPositionKeys() {
-        List<ScoredEnigmaKey> bestWheelAndPosKeys = new ArrayList<>();
+        List<Integer> wheelOrderIndices = new ArrayList<>();
+        for (int i = 0; i < WHEEL_ORDERS.length; i++) wheelOrderIndices.add(i);
 
-        Enigma machine = Enigma.createDefault();
-        String[] wheels = {"I", "II", "III", "IV", "V"};
+        screenedKeys.reset();
+        promotedKeys.reset();
 
-        for (String w1 : wheels) {
+        TopKeyHeap bestWheelAndPosKeys = new TopKeyHeap(candidates);
+        for (var keys : mapAll(wheelOrderIndices, this::bestRotorPositionKeys)) {
+            bestWheelAndPosKeys.offerAll(keys);
+        }
 
-            for (String w2 : wheels) {
-                if (w2.equals(w1)) continue;
+        if (isScreening()) {
+            System.out.printf("SCREENED : %d keys on the first %d letters, %d promoted to all %d%n",
+                    getScreenedKeys(), screeningPrefix, getPromotedKeys(), letters.length);
+        }
 
-                for (String w3 : wheels) {
-                    if (w3.equals(w2) || w3.equals(w1)) continue;
+        bestWheelAndPosKeys.sortDescending();
 
-                    System.out.println(w1 + " " + w2 + " " + w3);
+        List<ScoredEnigmaKey> bestKeys = new ArrayList<>(bestWheelAndPosKeys.size());
+        for (int i = 0; i < bestWheelAndPosKeys.size(); i++) {
+            long key = bestWheelAndPosKeys.key(i);
+            var snapshotKey = new EnigmaKey(
+                    WHEEL_ORDERS[(int) (key / ScramblerTable.STATE_COUNT)].clone(),
+                    new int[]{0, 0, 0},
+                    ScramblerTable.positionsOf((int) (key % ScramblerTable.STATE_COUNT)),
+                    new String[]{});
+            bestKeys.add(new ScoredEnigmaKey(snapshotKey, bestWheelAndPosKeys.score(i)));
 
-                    machine.setWheels(w1, w2, w3);
-                    double perWheelBoundingScore = minScore();
+            if (i < limit) System.out.println("CRACKED POS : " + bestKeys.getLast());
+        }
 
-                    for (int p1 = 0; p1 < 26; p1++) {
-                        for (int p2 = 0; p2 < 26; p2++) {
-                            for (int p3 = 0; p3 < 26; p3++) {
+        return bestKeys;
+    }
 
-                                machine.setPositions(p1, p2, p3);
+    /**
+     * Phase 1 for a single wheel order.
+     *
+     * @param wheelOrderIndex   index of the wheel order, see {@link #wheelOrder(int)}
+     * @return                  {@link TopKeyHeap} of the best keys, packed as {@code wheelOrderIndex * 17576 + state}
+     */
+    protected TopKeyHeap bestRotorPositionKeys(int wheelOrderIndex) {
+        String[] wheelOrder = WHEEL_ORDERS[wheelOrderIndex];
+        System.out.println(String.join(" ", wheelOrder));
 
-                                var snapshotKey = machine.getEnigmaKeu();
-                                var attempt = machine.encrypt(ciphertext, "");
-                                var score = IoC.fitness(attempt);
+        TopKeyHeap bestPosKeys = new TopKeyHeap(candidates);
 
-                                if (score > perWheelBoundingScore) {
-                                    perWheelBoundingScore = score;
-                                    var crackedWheelAndPos = new ScoredEnigmaKey(snapshotKey, score);
-                                    bestWheelAndPosKeys.add(crackedWheelAndPos);
+        ScramblerTable table = new ScramblerTable(wheelOrder, new int[]{0, 0, 0});
+        StateScorer scorer = stateScorer(table, letters.length);
+        long packedWheelOrder = (long) wheelOrderIndex * ScramblerTable.STATE_COUNT;
 
-                                    System.out.println("CRACKED POS : " + crackedWheelAndPos);
-                                }
-                            }
-                        }
-                    }
-                }
+        if (!isScreening()) {
+            for (int state = 0; state < ScramblerTable.STATE_COUNT; state++) {
+                double score = scorer.score(state, bestPosKeys.threshold());
+                if (score != Double.NEGATIVE_INFINITY) bestPosKeys.offer(packedWheelOrder + state, score);
             }
+            return bestPosKeys;
+        }
+
+        TopKeyHeap shortlisted = new TopKeyHeap(shortlist);
+        StateScorer prefixScorer = stateScorer(table, screeningPrefix);
+
+        for (int state = 0; state < ScramblerTable.STATE_COUNT; state++) {
+            double score = prefixScorer.score(state, shortlisted.threshold());
+            if (score != Double.NEGATIVE_INFINITY) shortlisted.offer(state, score);
+        }
+        screenedKeys.add(ScramblerTable.STATE_COUNT);
+
+        int promoted = 0;
+        for (int i = 0; i < shortlisted.size(); i++) {
+            int state = (int) shortlisted.key(i);
+            double score = scorer.score(state, bestPosKeys.threshold());
+            if (score != Double.NEGATIVE_INFINITY) bestPosKeys.offer(packedWheelOrder + state, score);
+            promoted++;
         }
+        promotedKeys.add(promoted);
 
-        bestWheelAndPosKeys.sort(Collections.reverseOrder());
-        return bestWheelAndPosKeys;
+        return bestPosKeys;
+    }
+
+    /**
+     * Scores a start state of a {@link ScramblerTable} on the first {@code length} letters of the ciphertext.
+     */
+    private interface StateScorer {
+        /**
+         * @return  the score, or negative infinity if it is certainly below {@code threshold}
+         */
+        double score(int state, double threshold);
+    }
+
+    /**
+     * @return  the {@link DecryptionKernel} without a {@link #setPositionFitness(Fitness) position fitness},
+     *          a decryption into a buffer scored by it otherwise
+     */
+    private StateScorer stateScorer(ScramblerTable table, int length) {
+        int[] ciphertext = (length == letters.length) ? letters : Arrays.copyOf(letters, length);
+
+        Fitness fitness = positionFitness;
+        if (fitness == null) {
+            DecryptionKernel kernel = new DecryptionKernel(ciphertext);
+            return (state, threshold) -> kernel.ioc(table, state, threshold);
+        }
+
+        int[] decryption = new int[length];
+        return (state, threshold) -> {
+            table.decrypt(state, ciphertext, length, decryption);
+            return fitness.score(decryption, length, threshold);
+        };
     }
 
     /**
@@ -148,11 +400,11 @@ public class Decryptor {
      * @see #bestRingSettingKey(ScoredEnigmaKey)
      */
     public List<ScoredEnigmaKey> bestRingSettingKeys(List<ScoredEnigmaKey> keys) {
-        return keys.stream()
+        var bestKeys = mapAll(keys.stream()
                 .limit(limit)                                        // limit to highest-scoring keys
-                .map(this::bestRingSettingKey)                       // crack the ring setting
-                .sorted(Collections.reverseOrder())                  // sort by highest to lowest
-                .collect(Collectors.toCollection(ArrayList::new));   // collect into an ArrayList
+                .toList(), this::bestRingSettingKey);                // crack the ring setting
+        bestKeys.sort(Collections.reverseOrder());                   // sort by highest to lowest
+        return bestKeys;
     }
 
     /**
@@ -220,16 +472,23 @@ public class Decryptor {
      * @see #bestPlugboardKey(List)
      */
     public List<ScoredEnigmaKey> bestPlugboardKeys(List<ScoredEnigmaKey> keys) {
-        return keys.stream()
+        var bestKeys = mapAll(keys.stream()
                 .limit(limit)
-                .map(this::crackPlugboardPairs)
-                .sorted(Collections.reverseOrder())
-                .collect(Collectors.toCollection(ArrayList::new));
+                .toList(), this::crackPlugboardPairs);
+        bestKeys.sort(Collections.reverseOrder());
+        return bestKeys;
     }
 
+    /**
+     * Turns the ring and the position of one rotor together through all 26 ring settings.
+     * <p>
+     * The wheels, reflector and plugboard are compiled once per key; each ring setting only swaps the ring offsets
+     * in with {@link EnigmaSpec#withRings(int[])}, and one {@link EnigmaCursor} is rewound for every trial.
+     * Only the letters whose rotor offsets differ from the previous ring setting are decrypted again,
+     * and an {@link IocAccumulator} updates the score from those changes alone. A
+     * {@link #setRingFitness(Fitness) ring fitness}, if set, scores the whole decryption instead.
+     */
     protected ScoredEnigmaKey crackedRingSetting(ScoredEnigmaKey key, int rotorIndex) {
-        Enigma machine = new Enigma(key);
-
         int[] ringSetting = key.rings;
         int[] rotorPosition = key.positions;
 
@@ -237,17 +496,41 @@ public class Decryptor {
 
         double boundingScore = minScore();
 
+        Fitness fitness = ringFitness;
+        IocAccumulator ioc = new IocAccumulator(letters.length);
+        int[] decryption = (fitness == null) ? null : new int[letters.length];
+        int[] offsets = new int[letters.length];
+        Arrays.fill(offsets, -1);
+
+        EnigmaSpec keySpec = EnigmaSpec.of(key);
+        EnigmaCursor cursor = keySpec.cursor(rotorPosition);
+
         for (int i = 0; i < 26; i++) {
-            machine.setRingSettings(ringSetting);
-            machine.setPositions(rotorPosition);
+            EnigmaSpec spec = keySpec.withRings(ringSetting);
+            cursor.restore(ScramblerTable.stateOf(rotorPosition));
 
-            EnigmaKey snapshotKey = machine.getEnigmaKeu();
-            String attempt = machine.encrypt(ciphertext, "");
-            double score = IoC.fitness(attempt);
+            for (int j = 0; j < letters.length; j++) {
+                cursor.step();
+                int state = cursor.snapshot();
+                int offset = spec.offsetsOf(state);
+
+                if (offset != offsets[j]) {
+                    offsets[j] = offset;
+                    ioc.set(j, spec.cipherIndex(state, letters[j]));
+                }
+            }
+
+            double score;
+            if (fitness == null) {
+                score = ioc.fitness();
+            } else {
+                for (int j = 0; j < letters.length; j++) decryption[j] = ioc.letterAt(j);
+                score = fitness.score(decryption, letters.length, boundingScore);
+            }
 
             if (score > boundingScore) {
                 boundingScore = score;
-                bestRingPositionKey = new ScoredEnigmaKey(snapshotKey, score);
+                bestRingPositionKey = new ScoredEnigmaKey(spec.toKey(rotorPosition), score);
             }
 
             ringSetting[rotorIndex]++;
@@ -257,20 +540,48 @@ public class Decryptor {
         return bestRingPositionKey;
     }
 
+    /**
+     * Phase 3 for a single key.
+     * <p>
+     * The rotor core of {@code key} is compiled once into a {@link ScramblerSequence}. Adding an unplugged pair
+     * {@code ab} only changes the positions whose ciphertext or current decryption is {@code a} or {@code b},
+     * so each trial looks those positions up in the sequence and rescores only the windows around them,
+     * stopping early once it cannot beat the best pair so far.
+     * <p>
+     * A {@link #setPlugboardFitness(Fitness) plugboard fitness} other than an {@link Ngram} has no incremental form,
+     * so each trial then patches a copy of the decryption and scores it whole.
+     */
     protected ScoredEnigmaKey crackPlugboardPairs(EnigmaKey key) {
         Enigma machine = new Enigma(key);
-
-        String currentDecryption = machine.encrypt(ciphertext, "");
-        machine.resetPositions();
+        ScramblerSequence sequence = new ScramblerSequence(key, letters.length);
+
+        int[] plugboard = plugboardOf(Arrays.asList(key.pairs));
+        int[] decryption = new int[letters.length];
+        sequence.decrypt(letters, plugboard, decryption);
+        Fitness fitness = (plugboardFitness == null) ? ngram() : plugboardFitness;
+        IncrementalNgram scorer = (fitness instanceof Ngram model) ? new IncrementalNgram(model, decryption, letters.length) : null;
+        int[] trial = (scorer == null) ? new int[letters.length] : null;
+
+        int[] cipherStart = new int[27];
+        int[] cipherPositions = new int[letters.length];
+        int[] plainStart = new int[27];
+        int[] plainPositions = new int[letters.length];
+        indexPositions(letters, cipherStart, cipherPositions);
+        indexPositions(decryption, plainStart, plainPositions);
+
+        int[] changedPositions = new int[letters.length];
+        int[] changedLetters = new int[letters.length];
+        int[] marks = new int[letters.length];
+        int mark = 0;
 
         ArrayList<String> plugboardPairs = new ArrayList<>(Arrays.asList(key.pairs));
-        double boundingPlugboardScore = ngram.score(currentDecryption);
+        double boundingPlugboardScore = (scorer != null) ? scorer.score() : fitness.score(decryption, letters.length);
         ScoredEnigmaKey bestPlugboardKey = new ScoredEnigmaKey(key, boundingPlugboardScore);
 
         for (int i = 0; i < 7; i++) {
 
             String bestPair = null;
-            String checked = String.join("", plugboardPairs);
+            String checked = String.join("", plugboardPairs).toLowerCase();
             double boundingPairsScore = boundingPlugboardScore;
 
             for (char p1 = 'a'; p1 <= 'z'; p1++) {
@@ -279,31 +590,73 @@ public class Decryptor {
                 for (char p2 = 'a'; p2 <= 'z'; p2++) {
                     if (p1 == p2 || checked.indexOf(p2) != -1) continue;
 
-                    String pair = p1 + "" + p2;
-
-
-                    plugboardPairs.add(pair);
-                    machine.setPlugboard(plugboardPairs);
+                    int a = p1 - 'a';
+                    int b = p2 - 'a';
+                    plugboard[a] = b;
+                    plugboard[b] = a;
+
+                    mark++;
+                    int count = collectPositions(cipherStart, cipherPositions, a, marks, mark, changedPositions, 0);
+                    count = collectPositions(cipherStart, cipherPositions, b, marks, mark, changedPositions, count);
+                    count = collectPositions(plainStart, plainPositions, a, marks, mark, changedPositions, count);
+                    count = collectPositions(plainStart, plainPositions, b, marks, mark, changedPositions, count);
+                    Arrays.sort(changedPositions, 0, count);
+
+                    int changed = 0;
+                    for (int k = 0; k < count; k++) {
+                        int position = changedPositions[k];
+                        int letter = plugboard[sequence.scramble(position, plugboard[letters[position]])];
+
+                        if (letter != decryption[position]) {
+                            changedPositions[changed] = position;
+                            changedLetters[changed++] = letter;
+                        }
+                    }
 
-                    String attempt = machine.encrypt(ciphertext, "");
-                    machine.resetPositions();
+                    double score;
+                    if (scorer != null) {
+                        score = scorer.trial(changedPositions, changedLetters, changed, boundingPairsScore);
+                    } else {
+                        System.arraycopy(decryption, 0, trial, 0, letters.length);
+                        for (int k = 0; k < changed; k++) trial[changedPositions[k]] = changedLetters[k];
+                        score = fitness.score(trial, letters.length, boundingPairsScore);
+                    }
 
-                    double score = ngram.score(attempt);
+                    plugboard[a] = a;
+                    plugboard[b] = b;
 
                     if (score > boundingPairsScore) {
+                        String pair = p1 + "" + p2;
                         bestPair = pair;
                         boundingPairsScore = score;
+
+                        plugboardPairs.add(pair);
+                        machine.setPlugboard(plugboardPairs);
                         bestPlugboardKey = new ScoredEnigmaKey(machine.getEnigmaKeu(), score);
-                        machine.resetPlugboard();
+                        plugboardPairs.remove(pair);
                     }
-
-                    plugboardPairs.remove(pair);
                 }
             }
 
             if (bestPair != null && boundingPairsScore > boundingPlugboardScore) {
                 boundingPlugboardScore = boundingPairsScore;
                 plugboardPairs.add(bestPair);
+
+                plugboard = plugboardOf(plugboardPairs);
+                int[] attempt = new int[letters.length];
+                sequence.decrypt(letters, plugboard, attempt);
+
+                int changed = 0;
+                for (int k = 0; k < attempt.length; k++) {
+                    if (attempt[k] != decryption[k]) {
+                        changedPositions[changed] = k;
+                        changedLetters[changed++] = attempt[k];
+                    }
+                }
+
+                if (scorer != null) scorer.apply(changedPositions, changedLetters, changed);
+                decryption = attempt;
+                indexPositions(decryption, plainStart, plainPositions);
             } else {
                 break;
             }
@@ -313,6 +666,100 @@ public class Decryptor {
         return bestPlugboardKey;
     }
 
+    /**
+     * Appends the positions of {@code letter} not yet marked with {@code mark} to {@code out}, and marks them.
+     *
+     * @return  no. of positions in {@code out}
+     */
+    private static int collectPositions(int[] start, int[] positions, int letter, int[] marks, int mark, int[] out, int count) {
+        for (int k = start[letter]; k < start[letter + 1]; k++) {
+            int position = positions[k];
+            if (marks[position] == mark) continue;
+            marks[position] = mark;
+            out[count++] = position;
+        }
+        return count;
+    }
+
+    /**
+     * @param pairs     letter pairs, e.g. {@code ["ab", "cd"]}
+     * @return          26-entry plugboard involution, {@code plugboard[c]} is the letter {@code c} is wired to
+     */
+    private static int[] plugboardOf(List<String> pairs) {
+        int[] plugboard = new int[26];
+        for (int c = 0; c < 26; c++) plugboard[c] = c;
+
+        for (String pair : pairs) {
+            int p1 = Character.toUpperCase(pair.charAt(0)) - 'A';
+            int p2 = Character.toUpperCase(pair.charAt(1)) - 'A';
+            plugboard[p1] = p2;
+            plugboard[p2] = p1;
+        }
+
+        return plugboard;
+    }
+
+    /**
+     * Groups the positions of {@code letters} by letter: the positions of letter {@code c}, in ascending order,
+     * are {@code positions[start[c]]} to {@code positions[start[c + 1] - 1]}.
+     */
+    private static void indexPositions(int[] letters, int[] start, int[] positions) {
+        Arrays.fill(start, 0);
+        for (int letter : letters) start[letter + 1]++;
+        for (int c = 0; c < 26; c++) start[c + 1] += start[c];
+
+        int[] next = Arrays.copyOf(start, 26);
+        for (int i = 0; i < letters.length; i++) positions[next[letters[i]]++] = i;
+    }
+
+    /**
+     * Applies {@code task} to every item, on {@link #executor} if there is one, keeping the order of {@code items}.
+     */
+    private <T, R> List<R> mapAll(List<T> items, Function<T, R> task) {
+        if (executor == null) {
+            return items.stream()
+                    .map(task)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        List<Future<R>> futures = items.stream()
+                .map(item -> executor.submit(() -> task.apply(item)))
+                .toList();
+
+        List<R> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<R> future : futures) results.add(future.get());
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException(e.getCause());
+        }
+
+        return results;
+    }
+
+    private static String[][] wheelOrders(String... wheels) {
+        List<String[]> wheelOrders = new ArrayList<>();
+
+        for (String w1 : wheels) {
+
+            for (String w2 : wheels) {
+                if (w2.equals(w1)) continue;
+
+                for (String w3 : wheels) {
+                    if (w3.equals(w2) || w3.equals(w1)) continue;
+
+                    wheelOrders.add(new String[]{w1, w2, w3});
+                }
+            }
+        }
+
+        return wheelOrders.toArray(new String[0][]);
+    }
+
     private static String clean(String text) {
         return text.toUpperCase()
                 .chars()
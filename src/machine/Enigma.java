@@ -1,8 +1,12 @@
 package src.machine;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Java implementation of the 3-rotor Enigma (model M3) used during
@@ -15,11 +19,16 @@ public class Enigma {
     public final int ROTOR_COUNT = 3;
     public final int LETTER_COUNT = 26;
 
+    /**
+     * Smallest no. of letters worth handing to a separate task in {@link #encrypt(String, String, ExecutorService)}.
+     */
+    protected static final int MIN_CHUNK_SIZE = 1 << 16;
+
     private String[] pairs;
     private String reflectorModel;
-    private final int[] reflector = new int[LETTER_COUNT];
+    private int[] reflector;
     private final Rotor[] rotors = new Rotor[ROTOR_COUNT];
-    private final HashMap<Character, Character> plugboard = new HashMap<>();
+    private final int[] plugboard = identity();
 
     /**
      * Java implementation of the 3-rotor Enigma (model M3) used during
@@ -31,7 +40,7 @@ public class Enigma {
      * @param wheels         wheel order, array of three I - V exclusive
      * @param rings          ring settings, array of three 0 - 25
      * @param positions      initial rotor position, array of three 0 - 25
-     * @param reflectorModel reflector model, "B" or "C"
+     * @param reflectorModel reflector model, "B", "C" or one registered in {@link WiringRegistry}
      * @param pairs          plugboard settings, array of letter pairs
      *
      * @see #Enigma(EnigmaKey)
@@ -82,57 +91,210 @@ public class Enigma {
     }
 
     public static Enigma copyOf(Enigma e) {
-        return new Enigma(e.getWheels(), e.getRingSettings(), e.getPositions(), "B", e.getPluggedPairs());
+        return new Enigma(e.getWheels(), e.getRingSettings(), e.getPositions(), e.reflectorModel, e.getPluggedPairs());
     }
 
     public String encrypt(String plaintext, String sep) {
         verifyNonNull(plaintext, "plaintext");
 
-        return plaintext
-                .toUpperCase()
-                .chars()
-                .filter(c -> (c >= 'A' && c <= 'Z') || c == ' ')
-                .map(c -> cipher((char) c))
-                .collect(
-                        StringBuilder::new,
-                        StringBuilder::appendCodePoint,
-                        StringBuilder::append)
-                .toString()
-                .replaceAll(" ", sep);
+        char[] text = plaintext.toUpperCase().toCharArray();
+        int count = encrypt(text, 0, text.length, text, 0);
+
+        return separate(new String(text, 0, count), sep);
+    }
+
+    /**
+     * Encrypts ASCII text between caller-owned buffers without allocating.
+     * <p>
+     * Characters are filtered as in {@link #encrypt(String, String)}, except that only {@code a - z} are uppercased:
+     * {@code A - Z} and spaces are enciphered, everything else is dropped.
+     * {@code out} may be {@code in} with {@code outOff <= off}, to encrypt in place.
+     *
+     * @param in        ASCII text
+     * @param off       index of the first byte of {@code in} to encrypt
+     * @param len       no. of bytes of {@code in} to encrypt
+     * @param out       buffer receiving the encrypted letters, with room for {@code len} bytes from {@code outOff}
+     * @param outOff    index of {@code out} to write the first letter to
+     * @return          no. of bytes written
+     *
+     * @see #encryptLetters(byte[], int, int, byte[], int)
+     */
+    public int encrypt(byte[] in, int off, int len, byte[] out, int outOff) {
+        int written = outOff;
+
+        for (int i = off; i < off + len; i++) {
+            char c = toUpperCase(in[i]);
+            if (isKept(c)) out[written++] = (byte) cipher(c);
+        }
+
+        return written - outOff;
+    }
+
+    /**
+     * Same as {@link #encrypt(byte[], int, int, byte[], int)}, on {@code char} buffers.
+     *
+     * @return  no. of characters written
+     */
+    public int encrypt(char[] in, int off, int len, char[] out, int outOff) {
+        int written = outOff;
+
+        for (int i = off; i < off + len; i++) {
+            char c = in[i];
+            if (c >= 'a' && c <= 'z') c -= 32;
+            if (isKept(c)) out[written++] = cipher(c);
+        }
+
+        return written - outOff;
+    }
+
+    /**
+     * Encrypts letter indices between caller-owned buffers without filtering or allocating.
+     * {@code out} may be {@code in} with {@code outOff <= off}, to encrypt in place.
+     *
+     * @param in        letter indices, 0 - 25
+     * @param off       index of the first letter of {@code in} to encrypt
+     * @param len       no. of letters to encrypt
+     * @param out       buffer receiving the encrypted letter indices
+     * @param outOff    index of {@code out} to write the first letter to
+     *
+     * @see #encrypt(byte[], int, int, byte[], int)
+     */
+    public void encryptLetters(byte[] in, int off, int len, byte[] out, int outOff) {
+        for (int i = 0; i < len; i++) {
+            out[outOff + i] = (byte) cipherIndex(in[off + i]);
+        }
+    }
+
+    /**
+     * Same as {@link #encryptLetters(byte[], int, int, byte[], int)}, on {@code char} buffers of letter indices.
+     */
+    public void encryptLetters(char[] in, int off, int len, char[] out, int outOff) {
+        for (int i = 0; i < len; i++) {
+            out[outOff + i] = (char) cipherIndex(in[off + i]);
+        }
+    }
+
+    /**
+     * Same as {@link #encrypt(String, String)}, but the letters are split into chunks that are encrypted concurrently
+     * on {@code executor}, each by an independent copy of this machine jumped ahead to the chunk's offset.
+     * <p>
+     * The output is identical to the sequential one, and this machine's rotors end up in the same positions.
+     * The caller owns {@code executor} and is responsible for shutting it down.
+     *
+     * @param plaintext     text to encrypt
+     * @param sep           separator, as in {@link #encrypt(String, String)}
+     * @param executor      {@link ExecutorService} to run the chunks on
+     * @return              encrypted text
+     *
+     * @see #encrypt(String, String)
+     * @see #jumpAhead(long)
+     */
+    public String encrypt(String plaintext, String sep, ExecutorService executor) {
+        verifyNonNull(plaintext, "plaintext");
+        verifyNonNull(executor, "executor");
+
+        char[] text = plaintext.toUpperCase().toCharArray();
+        int length = 0;
+        for (char c : text) if (isKept(c)) text[length++] = c;
+        char[] out = new char[length];
+
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, -Math.floorDiv(-length, Runtime.getRuntime().availableProcessors() * 4));
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int from = 0; from < length; from += chunkSize) {
+            int start = from;
+            int end = Math.min(length, from + chunkSize);
+
+            Enigma chunkMachine = copyOf(this);
+            chunkMachine.jumpAhead(start);
+
+            futures.add(executor.submit(() -> {
+                for (int i = start; i < end; i++) out[i] = chunkMachine.cipher(text[i]);
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) future.get();
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException(e.getCause());
+        }
+
+        jumpAhead(length);
+        return separate(new String(out), sep);
+    }
+
+    /**
+     * Enciphered output never holds a space (spaces are enciphered too), so this leaves the text as is;
+     * it keeps the literal, non-regex replacement {@link #encrypt(String, String)} has always applied.
+     */
+    static String separate(String ciphertext, String sep) {
+        return (sep == null || ciphertext.indexOf(' ') == -1) ? ciphertext : ciphertext.replace(" ", sep);
+    }
+
+    static char toUpperCase(byte b) {
+        return (b >= 'a' && b <= 'z') ? (char) (b - 32) : (char) (b & 0xFF);
+    }
+
+    static boolean isKept(char c) {
+        return (c >= 'A' && c <= 'Z') || c == ' ';
     }
 
     protected char cipher(char c) {
         turnRotors();
-        int ec = getPairOf(c) - 65;
-        for (int i = 2; i >= 0; i--) {
-            ec = this.rotors[i].wiringOf(ec, false);
-        }
+        // anything but a letter (i.e. a space) skips the plugboard and enters the rotors as its index mod 26
+        int ec = (c >= 'A' && c <= 'Z') ? plugboard[c - 65] : Math.floorMod(c - 65, LETTER_COUNT);
+        return (char) (plugboard[scramble(ec)] + 65);
+    }
+
+    /**
+     * Same as {@link #cipher(char)} but on letter indices, so that search loops can work on {@code int} buffers.
+     *
+     * @param letter    letter index, 0 - 25
+     * @return          enciphered letter index, 0 - 25
+     */
+    protected int cipherIndex(int letter) {
+        turnRotors();
+        return plugboard[scramble(plugboard[letter])];
+    }
+
+    /**
+     * Passes a letter through the rotors and the reflector at the current rotor positions,
+     * without turning the rotors and without the plugboard.
+     *
+     * @param letter    letter index, 0 - 25
+     * @return          scrambled letter index, 0 - 25
+     */
+    protected int scramble(int letter) {
+        int ec = this.rotors[2].forward(letter);
+        ec = this.rotors[1].forward(ec);
+        ec = this.rotors[0].forward(ec);
         ec = this.reflector[ec];
-        for (Rotor rotor : this.rotors) {
-            ec = rotor.wiringOf(ec, true);
-        }
-        return getPairOf((char) (ec % LETTER_COUNT + 65));
+        ec = this.rotors[0].backward(ec);
+        ec = this.rotors[1].backward(ec);
+        return this.rotors[2].backward(ec);
     }
 
     public char getPairOf(char c) {
-        return plugboard.getOrDefault(c, c);
+        return (c >= 'A' && c <= 'Z') ? (char) (plugboard[c - 65] + 65) : c;
     }
 
+    /**
+     * Fits the machine with the {@link Reflector} registered under {@code model}. Its table is shared, not copied.
+     *
+     * @param model     reflector name, see {@link WiringRegistry#reflector(String)}
+     */
     public void setReflector(String model) {
+        this.reflector = WiringRegistry.reflector(model).table;
         this.reflectorModel = model;
-        String reflector = reflectorWiringOf(model);
-
-        for (int i = 0; i < LETTER_COUNT; i++) {
-            this.reflector[i] = reflector.charAt(i) - 65;
-        }
     }
 
     public static String reflectorWiringOf(String reflectorModel) {
-        return switch (reflectorModel) {
-            case "B" -> "YRUHQSLDPXNGOKMIEBFZCWVJAT";
-            case "C" -> "RDOBJNTKVEHMLFCWZAXGYIPSUQ";
-            default -> throw new IllegalArgumentException("reflector must be \"B\" or \"C\".");
-        };
+        return WiringRegistry.reflector(reflectorModel).wiring();
     }
 
     /**
@@ -164,25 +326,30 @@ public class Enigma {
     public void setPlugboard(String[] pairs) {
         verifyNonNull(pairs, "pairs");
 
-        plugboard.clear();
+        int[] plugboardTemp = identity();
+        boolean[] paired = new boolean[LETTER_COUNT];
         String[] pairsTemp = new String[pairs.length];
 
         for (int i = 0; i < pairs.length; i++) {
             verifyNonNull(pairs[i], "pair");
 
             char[] p = pairs[i].toUpperCase().toCharArray();
+
+            if (p.length != 2 || !(isValidLetter(p[0]) && isValidLetter(p[1]))) throw new IllegalArgumentException("pair must be a string of two letters");
+
             char p1 = p[0];
             char p2 = p[1];
 
-            if (p.length != 2 || !(isValidLetter(p1) && isValidLetter(p2))) throw new IllegalArgumentException("pair must be a string of two letters");
+            if (paired[p1 - 65] || paired[p2 - 65]) throw new IllegalArgumentException("one of the letters is already paired: `" + p1 +  p2 + "`");
 
-            if (plugboard.containsKey(p1) || plugboard.containsKey(p2)) throw new IllegalArgumentException("one of the letters is already paired: `" + p1 +  p2 + "`");
-
-            plugboard.put(p1, p2);
-            plugboard.put(p2, p1);
+            paired[p1 - 65] = true;
+            paired[p2 - 65] = true;
+            plugboardTemp[p1 - 65] = p2 - 65;
+            plugboardTemp[p2 - 65] = p1 - 65;
             pairsTemp[i] = p1 + "" + p2;
         }
 
+        System.arraycopy(plugboardTemp, 0, this.plugboard, 0, LETTER_COUNT);
         this.pairs = pairsTemp;
     }
 
@@ -284,6 +451,46 @@ public class Enigma {
         this.rotors[2].turn();
     }
 
+    /**
+     * Moves the rotors {@code n} steps ahead in constant time, as if {@code n} letters were enciphered.
+     * The positions restored by {@link #resetPositions()} are not changed.
+     *
+     * @param n     no. of steps, at least 0
+     *
+     * @see #stateAt(long)
+     * @see SteppingSchedule
+     */
+    public void jumpAhead(long n) {
+        int[] positions = schedule().positionsAfter(getPositions(), n);
+
+        for (int i = 0; i < ROTOR_COUNT; i++) {
+            this.rotors[i].moveTo(positions[i]);
+        }
+    }
+
+    /**
+     * Computes in constant time the rotor positions {@code offset} letters into a message,
+     * i.e. after {@code offset} steps from the positions restored by {@link #resetPositions()}.
+     * The machine itself is not changed.
+     *
+     * @param offset    no. of steps, at least 0
+     * @return          {@code int} array object of length three
+     *
+     * @see #jumpAhead(long)
+     * @see SteppingSchedule
+     */
+    public int[] stateAt(long offset) {
+        int[] initialPositions = {rotors[0].initialPos, rotors[1].initialPos, rotors[2].initialPos};
+        return schedule().positionsAfter(initialPositions, offset);
+    }
+
+    /**
+     * @return  the shared {@link SteppingSchedule} of the current middle and rightmost wheels
+     */
+    SteppingSchedule schedule() {
+        return SteppingSchedule.ofNotches(rotors[1].notches, rotors[2].notches);
+    }
+
     /**
      * Resets the {@code position} of each {@link Rotor} to the ones initialized during object creation or through the setter methods.
      *
@@ -293,13 +500,13 @@ public class Enigma {
      */
     public void resetPositions() {
         for (Rotor rotor : this.rotors) {
-            rotor.position = rotor.initialPos;
+            rotor.moveTo(rotor.initialPos);
         }
     }
 
     public void resetPlugboard() {
         this.pairs = new String[]{};
-        this.plugboard.clear();
+        System.arraycopy(identity(), 0, this.plugboard, 0, LETTER_COUNT);
     }
 
     /**
@@ -385,6 +592,28 @@ public class Enigma {
         return new EnigmaKey(getWheels(), getRingSettings(), getPositions(), pairs);
     }
 
+    /**
+     * Compiles the wheels, rings, reflector and plugboard into an immutable {@link EnigmaSpec}.
+     * Later changes to this machine do not reflect on it.
+     *
+     * @return {@link EnigmaSpec} of the current settings; positions are left to its {@link EnigmaCursor}s
+     *
+     * @see #cursor()
+     */
+    public EnigmaSpec toSpec() {
+        Wheel[] wheels = new Wheel[ROTOR_COUNT];
+        for (int i = 0; i < ROTOR_COUNT; i++) wheels[i] = WiringRegistry.wheel(rotors[i].wheel);
+
+        return new EnigmaSpec(wheels, getRingSettings(), WiringRegistry.reflector(reflectorModel), plugboard, pairs);
+    }
+
+    /**
+     * @return {@link EnigmaCursor} over {@link #toSpec()} at the current rotor positions
+     */
+    public EnigmaCursor cursor() {
+        return toSpec().cursor(getPositions());
+    }
+
     public String toString() {
         return String.format("Enigma(wheels=%s, ringSettings=%s, rotorPositions=%s, reflectorModel=%s, pairs=%s)",
                 Arrays.toString(getWheels()),
@@ -395,6 +624,12 @@ public class Enigma {
         );
     }
 
+    private static int[] identity() {
+        int[] permutation = new int[26];
+        for (int i = 0; i < 26; i++) permutation[i] = i;
+        return permutation;
+    }
+
     protected boolean isValidLetter(char c) {
         return c >= 'A' && c <= 'Z';
     }
@@ -0,0 +1,149 @@
+package src.machine;
+
+import java.util.Arrays;
+
+/**
+ * {@link EnigmaCursor} is the only mutable part of an {@link Enigma}: the rotor positions, kept as a single
+ * rotor state (see {@link ScramblerTable#stateOf(int, int, int)}) over a shared {@link EnigmaSpec}.
+ * <p>
+ * A cursor is cheap to create and is meant to be owned by a single thread. {@link #snapshot()} and
+ * {@link #restore(int)} save and rewind it in constant time.
+ * <p>
+ * Encryption keeps and drops the same characters as {@link Enigma}, and gives the same output.
+ *
+ * @see EnigmaSpec#cursor(int[])
+ */
+public final class EnigmaCursor {
+    private final EnigmaSpec spec;
+    private final SteppingSchedule schedule;
+    private final int initialState;
+    private int state;
+
+    EnigmaCursor(EnigmaSpec spec, int state) {
+        this.spec = spec;
+        this.schedule = spec.schedule();
+        this.initialState = state;
+        this.state = state;
+    }
+
+    public EnigmaSpec spec() {
+        return spec;
+    }
+
+    /**
+     * @return  the current rotor state, to pass to {@link #restore(int)}
+     */
+    public int snapshot() {
+        return state;
+    }
+
+    /**
+     * @param snapshot  rotor state returned by {@link #snapshot()}, of this or any cursor over an equivalent spec
+     */
+    public void restore(int snapshot) {
+        if (snapshot < 0 || snapshot >= ScramblerTable.STATE_COUNT) {
+            throw new IllegalArgumentException("`snapshot` must be within 0-" + (ScramblerTable.STATE_COUNT - 1) + " inclusive (passed `" + snapshot + "`)");
+        }
+        this.state = snapshot;
+    }
+
+    /**
+     * Moves back to the positions the cursor was created with.
+     */
+    public void reset() {
+        this.state = initialState;
+    }
+
+    public int[] getPositions() {
+        return ScramblerTable.positionsOf(state);
+    }
+
+    public void step() {
+        state = schedule.successor(state);
+    }
+
+    /**
+     * Moves the rotors {@code n} steps ahead in constant time, as if {@code n} letters were enciphered.
+     *
+     * @param n     no. of steps, at least 0
+     */
+    public void jumpAhead(long n) {
+        state = schedule.stateAfter(state, n);
+    }
+
+    /**
+     * @param letter    letter index, 0 - 25
+     * @return          enciphered letter index, 0 - 25
+     */
+    public int cipherIndex(int letter) {
+        state = schedule.successor(state);
+        return spec.cipherIndex(state, letter);
+    }
+
+    /**
+     * @param c     uppercase letter or space
+     * @return      enciphered letter
+     */
+    public char cipher(char c) {
+        state = schedule.successor(state);
+        return spec.cipher(state, c);
+    }
+
+    /**
+     * Same as {@link Enigma#encrypt(String, String)}.
+     */
+    public String encrypt(String plaintext, String sep) {
+        if (plaintext == null) throw new IllegalArgumentException("`plaintext` must not be null");
+
+        char[] text = plaintext.toUpperCase().toCharArray();
+        int count = encrypt(text, 0, text.length, text, 0);
+
+        return Enigma.separate(new String(text, 0, count), sep);
+    }
+
+    /**
+     * Same as {@link Enigma#encrypt(byte[], int, int, byte[], int)}.
+     *
+     * @return  no. of bytes written
+     */
+    public int encrypt(byte[] in, int off, int len, byte[] out, int outOff) {
+        int written = outOff;
+
+        for (int i = off; i < off + len; i++) {
+            char c = Enigma.toUpperCase(in[i]);
+            if (Enigma.isKept(c)) out[written++] = (byte) cipher(c);
+        }
+
+        return written - outOff;
+    }
+
+    /**
+     * Same as {@link Enigma#encrypt(char[], int, int, char[], int)}.
+     *
+     * @return  no. of characters written
+     */
+    public int encrypt(char[] in, int off, int len, char[] out, int outOff) {
+        int written = outOff;
+
+        for (int i = off; i < off + len; i++) {
+            char c = in[i];
+            if (c >= 'a' && c <= 'z') c -= 32;
+            if (Enigma.isKept(c)) out[written++] = cipher(c);
+        }
+
+        return written - outOff;
+    }
+
+    /**
+     * Same as {@link Enigma#encryptLetters(byte[], int, int, byte[], int)}.
+     */
+    public void encryptLetters(byte[] in, int off, int len, byte[] out, int outOff) {
+        for (int i = 0; i < len; i++) {
+            out[outOff + i] = (byte) cipherIndex(in[off + i]);
+        }
+    }
+
+    public String toString() {
+        return String.format("EnigmaCursor(spec=%s, rotorPositions=%s)", spec, Arrays.toString(getPositions()));
+    }
+}
@@ -0,0 +1,293 @@
+package src.machine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link EnigmaKeyCodec} packs a complete key into two {@code long}s, so that large candidate sets fit in primitive
+ * arrays and travel between processes as 16 bytes per key.
+ * <p>
+ * The settings word holds, from the most significant bits down:
+ * <pre>
+ *  bits 54 - 61   leftmost wheel id     (8 bits, see {@link WiringRegistry#wheelId(String)})
+ *  bits 46 - 53   middle wheel id
+ *  bits 38 - 45   rightmost wheel id
+ *  bits 30 - 37   reflector id          (8 bits, see {@link WiringRegistry#reflectorId(String)})
+ *  bits 15 - 29   ring settings         (5 bits each, left to right)
+ *  bits  0 - 14   rotor positions       (5 bits each, left to right)
+ * </pre>
+ * so settings words compare like their keys do, wheel order first. The plugboard word is the rank of the plugboard
+ * among all 532,985,208,200,576 involutions of 26 letters, 0 being no pairs.
+ * <p>
+ * Decoded pairs come out in a canonical form, uppercase and ordered by their first letter, e.g. {@code ["AQ", "BX"]}.
+ *
+ * @see #encodeSettings(EnigmaKey, String)
+ * @see #encodePlugboard(String[])
+ * @see #decode(long, long)
+ * @see #write(DataOutput, long[], long[], int)
+ */
+public final class EnigmaKeyCodec {
+    private static final int WHEEL_BITS = 8;
+    private static final int REFLECTOR_BITS = 8;
+    private static final int SETTING_BITS = 5;
+
+    // no. of involutions of n letters, I(n) = I(n - 1) + (n - 1) * I(n - 2)
+    private static final long[] INVOLUTIONS = new long[27];
+
+    static {
+        INVOLUTIONS[0] = 1;
+        INVOLUTIONS[1] = 1;
+        for (int n = 2; n <= 26; n++) INVOLUTIONS[n] = INVOLUTIONS[n - 1] + (n - 1) * INVOLUTIONS[n - 2];
+    }
+
+    private EnigmaKeyCodec() {
+    }
+
+    /**
+     * @param key           {@link EnigmaKey} with {@code wheels}, {@code rings}, and {@code positions}; its plugboard is ignored
+     * @param reflector     reflector name
+     * @return              packed settings word
+     */
+    public static long encodeSettings(EnigmaKey key, String reflector) {
+        return encodeSettings(key.wheels, key.rings, key.positions, reflector);
+    }
+
+    /**
+     * @param wheels        wheel order, array of three registered wheel names
+     * @param rings         ring settings, array of three 0 - 26
+     * @param positions     rotor positions, array of three 0 - 26
+     * @param reflector     reflector name
+     * @return              packed settings word
+     */
+    public static long encodeSettings(String[] wheels, int[] rings, int[] positions, String reflector) {
+        verifyLength(wheels.length, "wheels");
+        verifyLength(rings.length, "rings");
+        verifyLength(positions.length, "positions");
+
+        long settings = 0;
+        for (String wheel : wheels) settings = settings << WHEEL_BITS | verifyId(WiringRegistry.wheelId(wheel), WHEEL_BITS, "wheel");
+        settings = settings << REFLECTOR_BITS | verifyId(WiringRegistry.reflectorId(reflector), REFLECTOR_BITS, "reflector");
+        for (int ring : rings) settings = settings << SETTING_BITS | verifySetting(ring, "ring");
+        for (int position : positions) settings = settings << SETTING_BITS | verifySetting(position, "position");
+
+        return settings;
+    }
+
+    /**
+     * @param pairs     plugboard settings, array of letter pairs, e.g. {@code ["ab", "cd"]}
+     * @return          packed plugboard word
+     * @throws IllegalArgumentException if a pair is not two letters or a letter is paired twice
+     */
+    public static long encodePlugboard(String[] pairs) {
+        int[] plugboard = new int[26];
+        for (int i = 0; i < 26; i++) plugboard[i] = i;
+
+        for (String pair : pairs) {
+            if (pair == null || pair.length() != 2) throw new IllegalArgumentException("pair must be a string of two letters");
+
+            int a = Character.toUpperCase(pair.charAt(0)) - 65;
+            int b = Character.toUpperCase(pair.charAt(1)) - 65;
+            if (a < 0 || a >= 26 || b < 0 || b >= 26) throw new IllegalArgumentException("pair must be a string of two letters");
+            if (a == b || plugboard[a] != a || plugboard[b] != b) {
+                throw new IllegalArgumentException("one of the letters is already paired: `" + pair.toUpperCase() + "`");
+            }
+
+            plugboard[a] = b;
+            plugboard[b] = a;
+        }
+
+        return encodePlugboard(plugboard);
+    }
+
+    /**
+     * @param plugboard     26-entry plugboard involution, {@code plugboard[c]} is the letter {@code c} is wired to
+     * @return              packed plugboard word
+     * @throws IllegalArgumentException if {@code plugboard} is not an involution
+     */
+    public static long encodePlugboard(int[] plugboard) {
+        int[] remaining = new int[26];
+        for (int i = 0; i < 26; i++) remaining[i] = i;
+
+        long rank = 0;
+        int n = 26;
+        while (n > 0) {
+            int a = remaining[0];
+            int b = plugboard[a];
+
+            if (b == a) {
+                n = remove(remaining, n, 0);
+                continue;
+            }
+
+            int k = 1;
+            while (k < n && remaining[k] != b) k++;
+            if (k == n || plugboard[b] != a) throw new IllegalArgumentException("`plugboard` must be an involution");
+
+            // fixed-point plugboards of the rest come first, then one block of I(n - 2) per possible partner
+            rank += INVOLUTIONS[n - 1] + (k - 1) * INVOLUTIONS[n - 2];
+            n = remove(remaining, n, k);
+            n = remove(remaining, n, 0);
+        }
+
+        return rank;
+    }
+
+    /**
+     * @param settings      packed settings word
+     * @param plugboard     packed plugboard word
+     * @return              the decoded {@link EnigmaKey}; see {@link #reflectorOf(long)} for the reflector
+     */
+    public static EnigmaKey decode(long settings, long plugboard) {
+        return new EnigmaKey(wheelsOf(settings), ringsOf(settings), positionsOf(settings), pairsOf(plugboard));
+    }
+
+    public static String[] wheelsOf(long settings) {
+        String[] wheels = new String[3];
+        for (int i = 0; i < 3; i++) {
+            int shift = REFLECTOR_BITS + 6 * SETTING_BITS + (2 - i) * WHEEL_BITS;
+            wheels[i] = WiringRegistry.wheel((int) (settings >>> shift & (1 << WHEEL_BITS) - 1)).name();
+        }
+        return wheels;
+    }
+
+    public static String reflectorOf(long settings) {
+        return WiringRegistry.reflector((int) (settings >>> 6 * SETTING_BITS & (1 << REFLECTOR_BITS) - 1)).name();
+    }
+
+    public static int[] ringsOf(long settings) {
+        return settingsOf(settings >>> 3 * SETTING_BITS);
+    }
+
+    public static int[] positionsOf(long settings) {
+        return settingsOf(settings);
+    }
+
+    /**
+     * @param plugboard     packed plugboard word
+     * @return              26-entry plugboard involution
+     */
+    public static int[] plugboardOf(long plugboard) {
+        if (plugboard < 0 || plugboard >= INVOLUTIONS[26]) {
+            throw new IllegalArgumentException("`plugboard` must be within 0-" + (INVOLUTIONS[26] - 1) + " inclusive (passed `" + plugboard + "`)");
+        }
+
+        int[] remaining = new int[26];
+        for (int i = 0; i < 26; i++) remaining[i] = i;
+        int[] wiring = new int[26];
+
+        long rank = plugboard;
+        int n = 26;
+        while (n > 0) {
+            int a = remaining[0];
+
+            if (rank < INVOLUTIONS[n - 1]) {
+                wiring[a] = a;
+                n = remove(remaining, n, 0);
+                continue;
+            }
+
+            rank -= INVOLUTIONS[n - 1];
+            int k = 1 + (int) (rank / INVOLUTIONS[n - 2]);
+            rank %= INVOLUTIONS[n - 2];
+
+            int b = remaining[k];
+            wiring[a] = b;
+            wiring[b] = a;
+            n = remove(remaining, n, k);
+            n = remove(remaining, n, 0);
+        }
+
+        return wiring;
+    }
+
+    /**
+     * @param plugboard     packed plugboard word
+     * @return              letter pairs in canonical form
+     */
+    public static String[] pairsOf(long plugboard) {
+        int[] wiring = plugboardOf(plugboard);
+        List<String> pairs = new ArrayList<>();
+
+        for (int a = 0; a < 26; a++) {
+            if (wiring[a] > a) pairs.add((char) (a + 65) + "" + (char) (wiring[a] + 65));
+        }
+
+        return pairs.toArray(new String[0]);
+    }
+
+    /**
+     * Writes one key as two big-endian {@code long}s.
+     *
+     * @throws IOException if writing fails
+     */
+    public static void write(DataOutput out, long settings, long plugboard) throws IOException {
+        out.writeLong(settings);
+        out.writeLong(plugboard);
+    }
+
+    /**
+     * Writes {@code count} followed by {@code count} keys.
+     *
+     * @param out           destination, e.g. a {@link java.io.DataOutputStream} over a buffered stream
+     * @param settings      packed settings words
+     * @param plugboards    packed plugboard words, parallel to {@code settings}
+     * @param count         no. of keys to write from the start of the arrays
+     * @throws IOException if writing fails
+     */
+    public static void write(DataOutput out, long[] settings, long[] plugboards, int count) throws IOException {
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) write(out, settings[i], plugboards[i]);
+    }
+
+    /**
+     * Reads keys written by {@link #write(DataOutput, long[], long[], int)}.
+     *
+     * @param in    source, e.g. a {@link java.io.DataInputStream} over a buffered stream
+     * @return      array of two arrays, the settings words then the plugboard words
+     * @throws IOException if reading fails or the input ends early
+     */
+    public static long[][] read(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) throw new IOException("negative key count `" + count + "`");
+
+        long[] settings = new long[count];
+        long[] plugboards = new long[count];
+        for (int i = 0; i < count; i++) {
+            settings[i] = in.readLong();
+            plugboards[i] = in.readLong();
+        }
+
+        return new long[][]{settings, plugboards};
+    }
+
+    private static int[] settingsOf(long bits) {
+        int mask = (1 << SETTING_BITS) - 1;
+        return new int[]{
+                (int) (bits >>> 2 * SETTING_BITS & mask),
+                (int) (bits >>> SETTING_BITS & mask),
+                (int) (bits & mask)
+        };
+    }
+
+    private static int remove(int[] remaining, int n, int index) {
+        System.arraycopy(remaining, index + 1, remaining, index, n - index - 1);
+        return n - 1;
+    }
+
+    private static void verifyLength(int length, String parameter) {
+        if (length != 3) throw new IllegalArgumentException("`" + parameter + "` must be of length three.");
+    }
+
+    private static int verifyId(int id, int bits, String parameter) {
+        if (id >= 1 << bits) throw new IllegalArgumentException("`" + parameter + "` id does not fit in " + bits + " bits (passed `" + id + "`)");
+        return id;
+    }
+
+    private static int verifySetting(int n, String parameter) {
+        if (n < 0 || n > 26) throw new IllegalArgumentException("`" + parameter + "` must be within 0-26 inclusive (passed `" + n + "`)");
+        return n;
+    }
+}
@@ -0,0 +1,184 @@
+package src.machine;
+
+import java.util.Arrays;
+
+/**
+ * {@link EnigmaSpec} is the fixed part of an {@link Enigma} setup (wheel order, ring settings, reflector and plugboard)
+ * compiled into read-only tables.
+ * <p>
+ * It holds no rotor positions and is never modified, so one instance can be shared by any number of threads without
+ * locking. Each thread encrypts or decrypts through its own {@link EnigmaCursor}, which is only a rotor state.
+ * <p>
+ * Rotor positions and ring settings of 26 are taken as 0, as {@link ScramblerTable#stateOf(int[])} does.
+ *
+ * @see #of(String[], int[], String, String[])
+ * @see #of(EnigmaKey)
+ * @see #withRings(int[])
+ * @see Enigma#toSpec()
+ * @see #cursor(int[])
+ */
+public final class EnigmaSpec {
+    private final Wheel[] wheels;
+    private final int[] rings;
+    private final Reflector reflector;
+    private final int[] plugboard;
+    private final String[] pairs;
+    private final SteppingSchedule schedule;
+
+    // (position - ringSetting) mod 26, times 26, indexed by rotor * 26 + position
+    private final int[] offsetBases = new int[3 * 26];
+
+    EnigmaSpec(Wheel[] wheels, int[] rings, Reflector reflector, int[] plugboard, String[] pairs) {
+        this.wheels = Arrays.copyOf(wheels, 3);
+        this.rings = Arrays.copyOf(rings, 3);
+        this.reflector = reflector;
+        this.plugboard = Arrays.copyOf(plugboard, 26);
+        this.pairs = Arrays.copyOf(pairs, pairs.length);
+        this.schedule = SteppingSchedule.ofNotches(wheels[1].notches(), wheels[2].notches());
+
+        for (int r = 0; r < 3; r++) {
+            for (int p = 0; p < 26; p++) {
+                offsetBases[r * 26 + p] = Math.floorMod(p - rings[r], 26) * 26;
+            }
+        }
+    }
+
+    /**
+     * Validates the settings exactly as {@link Enigma#Enigma(String[], int[], int[], String, String[])} does.
+     *
+     * @param wheels            wheel order, array of three names registered in {@link WiringRegistry}
+     * @param rings             ring settings, array of three 0 - 26
+     * @param reflectorModel    reflector name registered in {@link WiringRegistry}
+     * @param pairs             plugboard settings, array of letter pairs
+     * @return                  the compiled {@link EnigmaSpec}
+     */
+    public static EnigmaSpec of(String[] wheels, int[] rings, String reflectorModel, String[] pairs) {
+        return new Enigma(wheels, rings, new int[]{0, 0, 0}, reflectorModel, pairs).toSpec();
+    }
+
+    /**
+     * Same as {@link Enigma#Enigma(EnigmaKey)}, reflector {@code "B"}; the positions of {@code key} are ignored.
+     *
+     * @param key   {@link EnigmaKey} with {@code wheels}, {@code rings}, and {@code pairs}
+     * @return      the compiled {@link EnigmaSpec}
+     */
+    public static EnigmaSpec of(EnigmaKey key) {
+        return of(key.wheels, key.rings, "B", key.pairs);
+    }
+
+    /**
+     * Same wheels, reflector and plugboard with other ring settings, without going through {@link Enigma} again.
+     * Cursors of both specs share the same {@link #schedule()}, since stepping does not depend on the rings.
+     *
+     * @param rings     ring settings, array of three 0 - 26
+     * @return          the compiled {@link EnigmaSpec}
+     * @throws IllegalArgumentException if {@code rings} is not three settings within 0 - 26
+     */
+    public EnigmaSpec withRings(int[] rings) {
+        if (rings.length != 3) throw new IllegalArgumentException("`rings` must be of length three.");
+        for (int ring : rings) {
+            if (ring < 0 || ring > 26) throw new IllegalArgumentException("`rings` must be within 0-26 inclusive (passed `" + ring + "`)");
+        }
+
+        return new EnigmaSpec(wheels, rings, reflector, plugboard, pairs);
+    }
+
+    /**
+     * @param positions     start rotor positions, array of three 0 - 26
+     * @return              a new {@link EnigmaCursor} over this spec
+     */
+    public EnigmaCursor cursor(int[] positions) {
+        return new EnigmaCursor(this, ScramblerTable.stateOf(positions));
+    }
+
+    public EnigmaCursor cursor(int p0, int p1, int p2) {
+        return cursor(new int[]{p0, p1, p2});
+    }
+
+    /**
+     * @param state     rotor state after stepping, see {@link ScramblerTable#stateOf(int, int, int)}
+     * @param letter    letter index, 0 - 25
+     * @return          letter index passed through the rotors and the reflector, without the plugboard
+     */
+    public int scramble(int state, int letter) {
+        int o0 = offsetBases[state / 676];
+        int o1 = offsetBases[26 + state / 26 % 26];
+        int o2 = offsetBases[52 + state % 26];
+
+        int ec = wheels[2].forwardTable[o2 + letter];
+        ec = wheels[1].forwardTable[o1 + ec];
+        ec = wheels[0].forwardTable[o0 + ec];
+        ec = reflector.table[ec];
+        ec = wheels[0].backwardTable[o0 + ec];
+        ec = wheels[1].backwardTable[o1 + ec];
+        return wheels[2].backwardTable[o2 + ec];
+    }
+
+    /**
+     * The three rotor offsets (position minus ring setting) of a rotor state, packed like a state.
+     * Two states with the same offsets scramble every letter the same way.
+     *
+     * @param state     rotor state
+     * @return          packed offsets, 0 - 17575
+     */
+    int offsetsOf(int state) {
+        return offsetBases[state / 676] * 26 + offsetBases[26 + state / 26 % 26] + offsetBases[52 + state % 26] / 26;
+    }
+
+    /**
+     * @param state     rotor state after stepping
+     * @param letter    letter index, 0 - 25
+     * @return          enciphered letter index, 0 - 25
+     */
+    public int cipherIndex(int state, int letter) {
+        return plugboard[scramble(state, plugboard[letter])];
+    }
+
+    /**
+     * Same as {@link Enigma#cipher(char)} for a rotor state that has already been stepped.
+     */
+    char cipher(int state, char c) {
+        int ec = (c >= 'A' && c <= 'Z') ? plugboard[c - 65] : Math.floorMod(c - 65, 26);
+        return (char) (plugboard[scramble(state, ec)] + 65);
+    }
+
+    /**
+     * @return  the shared {@link SteppingSchedule} of the middle and rightmost wheels
+     */
+    public SteppingSchedule schedule() {
+        return schedule;
+    }
+
+    public String[] getWheels() {
+        return new String[]{wheels[0].name(), wheels[1].name(), wheels[2].name()};
+    }
+
+    public int[] getRingSettings() {
+        return Arrays.copyOf(rings, 3);
+    }
+
+    public String getReflector() {
+        return reflector.name();
+    }
+
+    public String[] getPluggedPairs() {
+        return Arrays.copyOf(pairs, pairs.length);
+    }
+
+    /**
+     * @param positions     rotor positions
+     * @return              {@link EnigmaKey} of this spec at {@code positions}
+     */
+    public EnigmaKey toKey(int[] positions) {
+        return new EnigmaKey(getWheels(), getRingSettings(), Arrays.copyOf(positions, 3), getPluggedPairs());
+    }
+
+    public String toString() {
+        return String.format("EnigmaSpec(wheels=%s, ringSettings=%s, reflectorModel=%s, pairs=%s)",
+                Arrays.toString(getWheels()),
+                Arrays.toString(rings),
+                reflector.name(),
+                Arrays.toString(pairs)
+        );
+    }
+}
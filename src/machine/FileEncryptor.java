@@ -0,0 +1,176 @@
+package src.machine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * {@link FileEncryptor} encrypts a file into another through memory mappings, so the data never goes through the heap
+ * and the OS page cache does the I/O.
+ * <p>
+ * The input is treated as ASCII and filtered like {@link StreamEncryptor} does. It is processed in regions:
+ * a first pass counts the kept bytes of every region, which gives each region its offset in the output and in the
+ * stepping sequence, and a second pass encrypts every region with its own copy of the machine jumped ahead to that offset.
+ * The regions can therefore run concurrently on an {@link ExecutorService}.
+ *
+ * @see #encrypt(Path, Path)
+ * @see #encrypt(Path, Path, ExecutorService)
+ */
+public class FileEncryptor {
+    public static final int DEFAULT_REGION_SIZE = 1 << 26;
+
+    private final Enigma machine;
+    private final int regionSize;
+
+    /**
+     * @param machine   {@link Enigma} to encrypt with, starting from its current rotor positions
+     */
+    public FileEncryptor(Enigma machine) {
+        this(machine, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * @param machine       {@link Enigma} to encrypt with, starting from its current rotor positions
+     * @param regionSize    no. of input bytes mapped and encrypted at a time
+     */
+    public FileEncryptor(Enigma machine, int regionSize) {
+        if (machine == null) throw new IllegalArgumentException("`machine` must not be null");
+        if (regionSize < 1) throw new IllegalArgumentException("`regionSize` must be at least 1 (passed `" + regionSize + "`)");
+
+        this.machine = machine;
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * Encrypts on the calling thread.
+     *
+     * @param input     file to encrypt
+     * @param output    file to write, created or truncated; must not be {@code input}
+     * @return          no. of bytes written
+     * @throws IOException if reading, mapping or writing fails
+     * @throws IllegalArgumentException if {@code input} and {@code output} are the same file
+     */
+    public long encrypt(Path input, Path output) throws IOException {
+        return encrypt(input, output, null);
+    }
+
+    /**
+     * Encrypts the regions concurrently on {@code executor}. The output is the same as {@link #encrypt(Path, Path)}.
+     * The caller owns {@code executor} and is responsible for shutting it down.
+     *
+     * @param input     file to encrypt
+     * @param output    file to write, created or truncated; must not be {@code input}, as truncating it would lose the
+     *                  input and concurrent regions would overwrite bytes other regions have yet to read
+     * @param executor  {@link ExecutorService} to run the regions on, or {@code null} to run on the calling thread
+     * @return          no. of bytes written
+     * @throws IOException if reading, mapping or writing fails
+     * @throws IllegalArgumentException if {@code input} and {@code output} are the same file
+     */
+    public long encrypt(Path input, Path output, ExecutorService executor) throws IOException {
+        if (Files.exists(output) && Files.isSameFile(input, output)) {
+            throw new IllegalArgumentException("`output` must not be the same file as `input` (passed `" + output + "`)");
+        }
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            long size = in.size();
+            int regions = (int) ((size + regionSize - 1) / regionSize);
+
+            List<Callable<Long>> counts = new ArrayList<>(regions);
+            for (int r = 0; r < regions; r++) {
+                long from = (long) r * regionSize;
+                long length = Math.min(regionSize, size - from);
+                counts.add(() -> count(in.map(FileChannel.MapMode.READ_ONLY, from, length)));
+            }
+
+            long[] offsets = new long[regions + 1];
+            List<Long> regionCounts = runAll(counts, executor);
+            for (int r = 0; r < regions; r++) offsets[r + 1] = offsets[r] + regionCounts.get(r);
+
+            List<Callable<Long>> encryptions = new ArrayList<>(regions);
+            for (int r = 0; r < regions; r++) {
+                long from = (long) r * regionSize;
+                long length = Math.min(regionSize, size - from);
+                long offset = offsets[r];
+                long count = offsets[r + 1] - offset;
+                if (count == 0) continue;
+
+                Enigma regionMachine = Enigma.copyOf(machine);
+                regionMachine.jumpAhead(offset);
+
+                encryptions.add(() -> encrypt(regionMachine,
+                        in.map(FileChannel.MapMode.READ_ONLY, from, length),
+                        out.map(FileChannel.MapMode.READ_WRITE, offset, count)));
+            }
+
+            runAll(encryptions, executor);
+
+            machine.jumpAhead(offsets[regions]);
+            return offsets[regions];
+        }
+    }
+
+    private static long count(MappedByteBuffer input) {
+        long count = 0;
+
+        for (int i = 0; i < input.limit(); i++) {
+            if (Enigma.isKept(Enigma.toUpperCase(input.get(i)))) count++;
+        }
+
+        return count;
+    }
+
+    private static long encrypt(Enigma machine, MappedByteBuffer input, MappedByteBuffer output) {
+        int written = 0;
+
+        for (int i = 0; i < input.limit(); i++) {
+            char c = Enigma.toUpperCase(input.get(i));
+            if (Enigma.isKept(c)) output.put(written++, (byte) machine.cipher(c));
+        }
+
+        return written;
+    }
+
+    private static <T> List<T> runAll(List<Callable<T>> tasks, ExecutorService executor) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+
+        try {
+            if (executor == null) {
+                for (Callable<T> task : tasks) results.add(task.call());
+                return results;
+            }
+
+            List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) futures.add(executor.submit(task));
+
+            try {
+                for (Future<T> future : futures) results.add(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                throw e;
+            }
+            return results;
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new RuntimeException(e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package src.machine;
+
+/**
+ * {@link LetterGroups} writes letters in fixed-size groups with a separator between them, e.g. {@code BDZG OWCX LTKS},
+ * the way Enigma traffic was usually transmitted. No regex and, for the array variants, no allocation.
+ *
+ * @see #group(byte[], int, int, int, byte, byte[], int)
+ * @see #group(String, int, String)
+ */
+public class LetterGroups {
+
+    /**
+     * @param size          no. of letters
+     * @param groupSize     no. of letters per group, at least 1
+     * @return              no. of bytes or characters the grouped letters take, separators included
+     */
+    public static int groupedLength(int size, int groupSize) {
+        return (size == 0) ? 0 : size + (size - 1) / groupSize;
+    }
+
+    /**
+     * @param in            letters
+     * @param off           index of the first letter of {@code in}
+     * @param len           no. of letters
+     * @param groupSize     no. of letters per group, at least 1
+     * @param sep           separator written between groups
+     * @param out           buffer with room for {@link #groupedLength(int, int)} bytes from {@code outOff}
+     * @param outOff        index of {@code out} to write to
+     * @return              no. of bytes written
+     */
+    public static int group(byte[] in, int off, int len, int groupSize, byte sep, byte[] out, int outOff) {
+        verifyGroupSize(groupSize);
+
+        int written = outOff;
+        for (int i = 0; i < len; i++) {
+            if (i > 0 && i % groupSize == 0) out[written++] = sep;
+            out[written++] = in[off + i];
+        }
+
+        return written - outOff;
+    }
+
+    /**
+     * Same as {@link #group(byte[], int, int, int, byte, byte[], int)}, on {@code char} buffers.
+     *
+     * @return  no. of characters written
+     */
+    public static int group(char[] in, int off, int len, int groupSize, char sep, char[] out, int outOff) {
+        verifyGroupSize(groupSize);
+
+        int written = outOff;
+        for (int i = 0; i < len; i++) {
+            if (i > 0 && i % groupSize == 0) out[written++] = sep;
+            out[written++] = in[off + i];
+        }
+
+        return written - outOff;
+    }
+
+    /**
+     * @param text          letters
+     * @param groupSize     no. of letters per group, at least 1
+     * @param sep           separator written between groups
+     * @return              grouped letters, e.g. {@code group("BDZGOWCX", 4, " ")} is {@code "BDZG OWCX"}
+     */
+    public static String group(String text, int groupSize, String sep) {
+        verifyGroupSize(groupSize);
+
+        StringBuilder sb = new StringBuilder(text.length() + (text.length() / groupSize) * sep.length());
+        for (int i = 0; i < text.length(); i += groupSize) {
+            if (i > 0) sb.append(sep);
+            sb.append(text, i, Math.min(text.length(), i + groupSize));
+        }
+
+        return sb.toString();
+    }
+
+    private static void verifyGroupSize(int groupSize) {
+        if (groupSize < 1) throw new IllegalArgumentException("`groupSize` must be at least 1 (passed `" + groupSize + "`)");
+    }
+}
@@ -0,0 +1,45 @@
+package src.machine;
+
+/**
+ * {@link Reflector} is the immutable definition of a reflector wiring, shared by every {@link Enigma} fitted with it.
+ *
+ * @see WiringRegistry#reflector(String)
+ */
+public final class Reflector {
+    private final String name;
+    private final String wiring;
+
+    // shared with every Enigma fitted with this reflector, never written after construction
+    final int[] table = new int[26];
+
+    /**
+     * @param name      reflector name, e.g. {@code "B"}
+     * @param wiring    involution of the 26 uppercase letters without fixed points, e.g. {@code "YRUHQSLDPXNGOKMIEBFZCWVJAT"}
+     * @throws IllegalArgumentException if {@code wiring} does not pair every letter with another one
+     */
+    public Reflector(String name, String wiring) {
+        Wheel.verifyName(name, "name");
+        WiringRegistry.parsePermutation(wiring, this.table);
+
+        for (int i = 0; i < 26; i++) {
+            if (table[i] == i || table[table[i]] != i) {
+                throw new IllegalArgumentException("`wiring` must pair every letter with another one (passed `" + wiring + "`)");
+            }
+        }
+
+        this.name = name;
+        this.wiring = wiring;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String wiring() {
+        return wiring;
+    }
+
+    public String toString() {
+        return String.format("Reflector(name=%s, wiring=%s)", name, wiring);
+    }
+}
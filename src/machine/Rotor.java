@@ -6,67 +6,97 @@ public class Rotor {
     int position;
     int initialPos;
     int turnover;
+    int notches;
+
+    // shared with every Rotor fitted with the same Wheel, see WiringRegistry
     int[] wiring;
     int[] inverseWiring;
+    int[] forwardTable;
+    int[] backwardTable;
+    // (position - ringSetting) mod 26, times 26
+    int offsetBase;
 
     Rotor(String wheel, int ringSetting, int position) {
-        this.inverseWiring = new int[26];
-        this.wiring = new int[26];
-
         this.setWheel(wheel);
         this.setRingSetting(ringSetting);
         this.setPosition(position);
     }
 
+    /**
+     * Fits the rotor with the {@link Wheel} registered under {@code wheel}. Its tables are shared, not copied.
+     *
+     * @param wheel     wheel name, see {@link WiringRegistry#wheel(String)}
+     */
     public void setWheel(String wheel) {
         verifyNonNull(wheel, "wheel");
+        setWheel(WiringRegistry.wheel(wheel));
+    }
 
-        this.wheel = wheel;
-        this.turnover = turnoverOf(wheel);
-        String wiring = wiringOf(wheel);
-
-        for (int i = 0; i < 26; i++) {
-            int cIndex = wiring.charAt(i) - 65;
-            this.wiring[i] = cIndex;
-            this.inverseWiring[cIndex] = i;
-        }
+    void setWheel(Wheel wheel) {
+        this.wheel = wheel.name();
+        this.turnover = wheel.turnover();
+        this.notches = wheel.notches();
+        this.wiring = wheel.forward;
+        this.inverseWiring = wheel.backward;
+        this.forwardTable = wheel.forwardTable;
+        this.backwardTable = wheel.backwardTable;
     }
 
     public String wiringOf(String wheel) {
-        return switch (wheel) {
-            case "I" -> "EKMFLGDQVZNTOWYHXUSPAIBRCJ";
-            case "II" -> "AJDKSIRUXBLHWTMCQGZNPYFVOE";
-            case "III" -> "BDFHJLCPRTXVZNYEIWGAKMUSQO";
-            case "IV" -> "ESOVPZJAYQUIRHXLNFTGKDCMWB";
-            case "V" -> "VZBRGITYUPSDNHLXAWMJQOFECK";
-            default -> throw new IllegalArgumentException("unsupported wheel type");
-        };
+        return WiringRegistry.wheel(wheel).wiring();
     }
 
     public int turnoverOf(String wheel) {
-        return switch (wheel) {
-            case "I" -> 16;
-            case "II" -> 4;
-            case "III" -> 21;
-            case "IV" -> 9;
-            case "V" -> 25;
-            default -> throw new IllegalArgumentException("unsupported wheel type");
-        };
+        return WiringRegistry.wheel(wheel).turnover();
     }
 
     public void setRingSetting(int ringSetting) {
         verifyInteger(ringSetting, "ringSetting");
         this.ringSetting = ringSetting;
+        updateOffset();
     }
 
     public void setPosition(int position) {
         verifyInteger(position, "position");
         this.position = position;
         this.initialPos = position;
+        updateOffset();
+    }
+
+    /**
+     * Moves the rotor without changing the position it is reset to.
+     */
+    void moveTo(int position) {
+        this.position = position;
+        updateOffset();
     }
 
     public void turn() {
-        this.position = (this.position + 1) % 26;
+        this.position++;
+        if (this.position >= 26) this.position -= 26;
+
+        this.offsetBase += 26;
+        if (this.offsetBase == 26 * 26) this.offsetBase = 0;
+    }
+
+    /**
+     * Same as {@code wiringOf(c, false)} for a letter index, as a single table lookup.
+     *
+     * @param c     letter index, 0 - 25
+     * @return      letter index, 0 - 25
+     */
+    public int forward(int c) {
+        return this.forwardTable[this.offsetBase + c];
+    }
+
+    /**
+     * Same as {@code wiringOf(c, true)} for a letter index, as a single table lookup.
+     *
+     * @param c     letter index, 0 - 25
+     * @return      letter index, 0 - 25
+     */
+    public int backward(int c) {
+        return this.backwardTable[this.offsetBase + c];
     }
 
     public int wiringOf(int ordC, boolean inverse) {
@@ -76,7 +106,7 @@ public class Rotor {
     }
 
     public boolean atTurnover() {
-        return this.position == this.turnover;
+        return (this.notches >>> this.position & 1) != 0;
     }
 
     public String toString() {
@@ -84,6 +114,10 @@ public class Rotor {
                 this.position);
     }
 
+    private void updateOffset() {
+        this.offsetBase = mod(this.position - this.ringSetting, 26) * 26;
+    }
+
     private int mod(int n, int mod) {
         return Math.abs(Math.floorMod(n, mod));
     }
@@ -0,0 +1,61 @@
+package src.machine;
+
+/**
+ * {@link ScramblerSequence} is the rotor core of an {@link EnigmaKey} compiled for a message:
+ * the scrambler permutation (rotors and reflector, no plugboard) used at each character position.
+ * <p>
+ * While the wheels, rings and start positions stay fixed, any plugboard can then be evaluated as
+ * table lookups around it instead of stepping the rotors again.
+ *
+ * @see #ScramblerSequence(EnigmaKey, int)
+ * @see #decrypt(int[], int[], int[])
+ */
+public class ScramblerSequence {
+    private final int length;
+    private final int[] table;
+
+    /**
+     * @param key       {@link EnigmaKey} with {@code wheels}, {@code rings}, and {@code positions}; its plugboard is ignored
+     * @param length    no. of character positions to compile
+     */
+    public ScramblerSequence(EnigmaKey key, int length) {
+        EnigmaSpec spec = EnigmaSpec.of(key.wheels, key.rings, "B", new String[]{});
+        EnigmaCursor cursor = spec.cursor(key.positions);
+
+        this.length = length;
+        this.table = new int[length * 26];
+
+        for (int i = 0; i < length; i++) {
+            cursor.step();
+            int state = cursor.snapshot();
+
+            for (int c = 0; c < 26; c++) {
+                table[i * 26 + c] = spec.scramble(state, c);
+            }
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param position  character position, 0 - {@code length - 1}
+     * @param letter    letter index, 0 - 25
+     * @return          scrambled letter index, 0 - 25
+     */
+    public int scramble(int position, int letter) {
+        return table[position * 26 + letter];
+    }
+
+    /**
+     * @param letters       letter indices to encrypt or decrypt, at most {@link #length()} long
+     * @param plugboard     26-entry plugboard involution, {@code plugboard[c]} is the letter {@code c} is wired to
+     * @param out           buffer receiving the resulting letter indices
+     */
+    public void decrypt(int[] letters, int[] plugboard, int[] out) {
+        for (int i = 0; i < letters.length; i++) {
+            out[i] = plugboard[table[i * 26 + plugboard[letters[i]]]];
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package src.machine;
+
+/**
+ * {@link ScramblerTable} holds the scrambler permutation (rotors and reflector, no plugboard) of every
+ * rotor state for a fixed wheel order and ring setting, together with the state each one steps into.
+ * <p>
+ * A rotor state is the three rotor positions packed as {@code p0 * 676 + p1 * 26 + p2}.
+ * The permutation used at character {@code i} for a start state {@code s} is the one of the state reached
+ * after {@code i + 1} steps from {@code s}, so every start state can be decrypted as a walk over this shared
+ * table instead of turning the rotors and re-wiring every letter.
+ *
+ * @see #ScramblerTable(String[], int[])
+ * @see #decrypt(int, int[], int, int[])
+ */
+public class ScramblerTable {
+    public static final int STATE_COUNT = 26 * 26 * 26;
+
+    private final int[] permutations = new int[STATE_COUNT * 26];
+    private final SteppingSchedule schedule;
+
+    /**
+     * Builds the table from an {@link EnigmaSpec} (reflector B, no plugboard) over every rotor state.
+     * Successors come from the shared {@link SteppingSchedule} of the wheel order.
+     *
+     * @param wheels    wheel order, array of three I - V exclusive
+     * @param rings     ring settings, array of three 0 - 25
+     */
+    public ScramblerTable(String[] wheels, int[] rings) {
+        EnigmaSpec spec = EnigmaSpec.of(wheels, rings, "B", new String[]{});
+        this.schedule = spec.schedule();
+
+        for (int state = 0; state < STATE_COUNT; state++) {
+            for (int c = 0; c < 26; c++) {
+                permutations[state * 26 + c] = spec.scramble(state, c);
+            }
+        }
+    }
+
+    public static int stateOf(int p0, int p1, int p2) {
+        return p0 * 676 + p1 * 26 + p2;
+    }
+
+    public static int stateOf(int[] positions) {
+        return stateOf(positions[0] % 26, positions[1] % 26, positions[2] % 26);
+    }
+
+    public static int[] positionsOf(int state) {
+        return new int[]{state / 676, state / 26 % 26, state % 26};
+    }
+
+    public int successor(int state) {
+        return schedule.successor(state);
+    }
+
+    public int scramble(int state, int letter) {
+        return permutations[state * 26 + letter];
+    }
+
+    /**
+     * Decrypts {@code letters} as if the rotors were set to {@code start}.
+     *
+     * @param start     rotor state before the first character, see {@link #stateOf(int, int, int)}
+     * @param letters   ciphertext letter indices, 0 - 25
+     * @param length    no. of letters to decrypt
+     * @param out       buffer receiving the decrypted letter indices, at least {@code length} long
+     */
+    public void decrypt(int start, int[] letters, int length, int[] out) {
+        int state = start;
+        for (int i = 0; i < length; i++) {
+            state = schedule.successor(state);
+            out[i] = permutations[state * 26 + letters[i]];
+        }
+    }
+}
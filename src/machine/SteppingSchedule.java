@@ -0,0 +1,158 @@
+package src.machine;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SteppingSchedule} is the stepping sequence of the rotors, including the double step of the middle rotor,
+ * precomputed over all 17,576 rotor states so that the state {@code n} steps ahead of any start is found in constant time.
+ * <p>
+ * Stepping only depends on the turnover notches of the middle and rightmost rotors, so schedules are shared
+ * between every machine and wheel order with the same notches.
+ * <p>
+ * States are packed as in {@link ScramblerTable#stateOf(int, int, int)}. Repeatedly stepping from any state
+ * runs through a few transient states at most and then around a cycle, which is what makes the jump-ahead possible.
+ *
+ * @see #of(int, int)
+ * @see #ofNotches(int, int)
+ * @see #stateAfter(int, long)
+ */
+public class SteppingSchedule {
+    public static final int STATE_COUNT = ScramblerTable.STATE_COUNT;
+
+    private static final ConcurrentHashMap<Long, SteppingSchedule> SCHEDULES = new ConcurrentHashMap<>();
+
+    private final int[] successors = new int[STATE_COUNT];
+    private final int[] tails = new int[STATE_COUNT];
+    private final int[] entries = new int[STATE_COUNT];
+    private final int[] cycleStates = new int[STATE_COUNT];
+    private final int[] cycleStarts = new int[STATE_COUNT];
+    private final int[] cycleLengths = new int[STATE_COUNT];
+
+    private SteppingSchedule(int middleNotches, int rightNotches) {
+        for (int state = 0; state < STATE_COUNT; state++) {
+            int p0 = state / 676;
+            int p1 = state / 26 % 26;
+            int p2 = state % 26;
+
+            // same order of checks as Enigma.turnRotors()
+            if ((middleNotches >>> p1 & 1) != 0) {
+                p0 = (p0 + 1) % 26;
+                p1 = (p1 + 1) % 26;
+            }
+            if ((rightNotches >>> p2 & 1) != 0) {
+                p1 = (p1 + 1) % 26;
+            }
+            p2 = (p2 + 1) % 26;
+
+            successors[state] = ScramblerTable.stateOf(p0, p1, p2);
+        }
+
+        index();
+    }
+
+    /**
+     * @param middleTurnover    turnover position of the middle rotor, 0 - 25
+     * @param rightTurnover     turnover position of the rightmost rotor, 0 - 25
+     * @return                  the shared {@link SteppingSchedule} for these turnovers
+     */
+    public static SteppingSchedule of(int middleTurnover, int rightTurnover) {
+        return ofNotches(1 << middleTurnover, 1 << rightTurnover);
+    }
+
+    /**
+     * @param middleNotches     turnover notches of the middle rotor, as in {@link Wheel#notches()}
+     * @param rightNotches      turnover notches of the rightmost rotor, as in {@link Wheel#notches()}
+     * @return                  the shared {@link SteppingSchedule} for these notches
+     */
+    public static SteppingSchedule ofNotches(int middleNotches, int rightNotches) {
+        return SCHEDULES.computeIfAbsent((long) middleNotches << 26 | rightNotches,
+                k -> new SteppingSchedule(middleNotches, rightNotches));
+    }
+
+    /**
+     * @param state     rotor state
+     * @return          rotor state after one step
+     */
+    public int successor(int state) {
+        return successors[state];
+    }
+
+    /**
+     * @param state     rotor state
+     * @param n         no. of steps, at least 0
+     * @return          rotor state after {@code n} steps
+     */
+    public int stateAfter(int state, long n) {
+        if (n < 0) throw new IllegalArgumentException("`n` must not be negative (passed `" + n + "`)");
+
+        int tail = tails[state];
+        if (n < tail) {
+            // transient states are at most a couple of steps long
+            for (; n > 0; n--) state = successors[state];
+            return state;
+        }
+
+        int entry = entries[state];
+        int start = cycleStarts[entry];
+        int length = cycleLengths[entry];
+        return cycleStates[start + (int) ((entry - start + n - tail) % length)];
+    }
+
+    /**
+     * @param positions     rotor positions, array of three 0 - 26
+     * @param n             no. of steps, at least 0
+     * @return              rotor positions after {@code n} steps
+     */
+    public int[] positionsAfter(int[] positions, long n) {
+        return ScramblerTable.positionsOf(stateAfter(ScramblerTable.stateOf(positions), n));
+    }
+
+    /**
+     * Finds, for every state, the no. of steps to reach a cycle and where on that cycle it lands.
+     * Cycle states are laid out contiguously in {@link #cycleStates}, and {@link #entries} holds a flat index into it.
+     */
+    private void index() {
+        int[] marks = new int[STATE_COUNT];         // 0 unvisited, 1 on the current path, 2 done
+        int[] path = new int[STATE_COUNT];
+        int cycleEnd = 0;
+
+        for (int state = 0; state < STATE_COUNT; state++) {
+            if (marks[state] != 0) continue;
+
+            int length = 0;
+            int s = state;
+            while (marks[s] == 0) {
+                marks[s] = 1;
+                path[length++] = s;
+                s = successors[s];
+            }
+
+            int tailEnd = length;
+            if (marks[s] == 1) {
+                // a new cycle, from s to the end of the path
+                int start = cycleEnd;
+                tailEnd = 0;
+                while (path[tailEnd] != s) tailEnd++;
+
+                for (int i = tailEnd; i < length; i++) {
+                    int c = path[i];
+                    entries[c] = cycleEnd;
+                    cycleStates[cycleEnd++] = c;
+                    marks[c] = 2;
+                }
+                for (int i = start; i < cycleEnd; i++) {
+                    cycleStarts[i] = start;
+                    cycleLengths[i] = cycleEnd - start;
+                }
+            }
+
+            for (int i = tailEnd - 1; i >= 0; i--) {
+                int t = path[i];
+                int next = successors[t];
+                marks[t] = 2;
+                tails[t] = tails[next] + 1;
+                entries[t] = entries[next];
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package src.machine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link StreamEncryptor} pushes text of any size through an {@link Enigma} in fixed-size buffers,
+ * so memory use does not grow with the input.
+ * <p>
+ * The rotors keep turning across buffer boundaries, and the same characters are kept and dropped as in
+ * {@link Enigma#encrypt(String, String)}: the output of a whole stream equals {@code encrypt} of the whole text.
+ * Byte-oriented variants treat the input as ASCII and skip every other byte; use {@link #encrypt(Reader, Writer)}
+ * for text whose non-ASCII letters should be uppercased first.
+ * <p>
+ * Streams and channels are neither closed nor flushed.
+ *
+ * @see #encrypt(Reader, Writer)
+ * @see #encrypt(InputStream, OutputStream)
+ * @see #encrypt(ReadableByteChannel, WritableByteChannel)
+ */
+public class StreamEncryptor {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final Enigma machine;
+    private final int bufferSize;
+
+    /**
+     * @param machine   {@link Enigma} to encrypt with, starting from its current rotor positions
+     */
+    public StreamEncryptor(Enigma machine) {
+        this(machine, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param machine       {@link Enigma} to encrypt with, starting from its current rotor positions
+     * @param bufferSize    no. of characters or bytes read at a time
+     */
+    public StreamEncryptor(Enigma machine, int bufferSize) {
+        if (machine == null) throw new IllegalArgumentException("`machine` must not be null");
+        if (bufferSize < 2) throw new IllegalArgumentException("`bufferSize` must be at least 2 (passed `" + bufferSize + "`)");
+
+        this.machine = machine;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @return  no. of characters written
+     * @throws IOException if reading or writing fails
+     */
+    public long encrypt(Reader in, Writer out) throws IOException {
+        char[] buffer = new char[bufferSize];
+        char[] encrypted = new char[bufferSize * 3];
+        long written = 0;
+        int carried = 0;
+        int read;
+
+        while ((read = in.read(buffer, carried, bufferSize - carried)) != -1) {
+            int length = carried + read;
+
+            // keep a trailing high surrogate until its low surrogate arrives, so the pair is uppercased together
+            carried = (length > 0 && Character.isHighSurrogate(buffer[length - 1])) ? 1 : 0;
+
+            int count = encrypt(new String(buffer, 0, length - carried).toUpperCase(), encrypted);
+            out.write(encrypted, 0, count);
+            written += count;
+
+            if (carried == 1) buffer[0] = buffer[length - 1];
+        }
+
+        if (carried == 1) {
+            int count = encrypt(String.valueOf(buffer[0]).toUpperCase(), encrypted);
+            out.write(encrypted, 0, count);
+            written += count;
+        }
+
+        return written;
+    }
+
+    /**
+     * @return  no. of bytes written
+     * @throws IOException if reading or writing fails
+     */
+    public long encrypt(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        long written = 0;
+        int read;
+
+        while ((read = in.read(buffer)) != -1) {
+            int count = machine.encrypt(buffer, 0, read, buffer, 0);
+            out.write(buffer, 0, count);
+            written += count;
+        }
+
+        return written;
+    }
+
+    /**
+     * Reads and writes through direct {@link ByteBuffer}s.
+     *
+     * @return  no. of bytes written
+     * @throws IOException if reading or writing fails
+     */
+    public long encrypt(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        ByteBuffer input = ByteBuffer.allocateDirect(bufferSize);
+        ByteBuffer output = ByteBuffer.allocateDirect(bufferSize);
+        long written = 0;
+
+        while (in.read(input) != -1) {
+            input.flip();
+
+            while (input.hasRemaining()) {
+                char c = Enigma.toUpperCase(input.get());
+                if (Enigma.isKept(c)) output.put((byte) machine.cipher(c));
+            }
+
+            input.clear();
+            output.flip();
+            written += output.remaining();
+            while (output.hasRemaining()) out.write(output);
+            output.clear();
+        }
+
+        return written;
+    }
+
+    /**
+     * Encrypts the kept characters of already uppercased {@code text} into {@code out}.
+     *
+     * @return  no. of characters written
+     */
+    private int encrypt(String text, char[] out) {
+        int count = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Enigma.isKept(c)) out[count++] = machine.cipher(c);
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+package src.machine;
+
+/**
+ * {@link Wheel} is the immutable definition of a rotor wheel: its wiring, the inverse wiring, its turnover notches
+ * and the wiring pre-rotated by every offset.
+ * <p>
+ * A {@link Wheel} is built once, registered in {@link WiringRegistry} and then shared by every {@link Rotor}
+ * fitted with it, so setting up or re-wiring a machine allocates nothing.
+ *
+ * @see WiringRegistry#wheel(String)
+ */
+public final class Wheel {
+    private final String name;
+    private final String wiring;
+    private final int notches;
+    private final int turnover;
+
+    // shared with every Rotor fitted with this wheel, never written after construction
+    final int[] forward = new int[26];
+    final int[] backward = new int[26];
+
+    // wiring pre-rotated by each of the 26 offsets, indexed by offset * 26 + letter
+    final int[] forwardTable = new int[26 * 26];
+    final int[] backwardTable = new int[26 * 26];
+
+    /**
+     * @param name      wheel name, e.g. {@code "I"}
+     * @param wiring    permutation of the 26 uppercase letters, e.g. {@code "EKMFLGDQVZNTOWYHXUSPAIBRCJ"}
+     * @param notches   positions at which the wheel turns the one to its left, e.g. {@code "Q"} or {@code "ZM"}
+     * @throws IllegalArgumentException if {@code wiring} is not a permutation of A-Z or {@code notches} is not letters
+     */
+    public Wheel(String name, String wiring, String notches) {
+        verifyName(name, "name");
+        WiringRegistry.parsePermutation(wiring, this.forward);
+        if (notches == null || notches.isEmpty()) throw new IllegalArgumentException("`notches` must not be empty");
+
+        int mask = 0;
+        for (int i = 0; i < notches.length(); i++) {
+            char c = notches.charAt(i);
+            if (c < 'A' || c > 'Z') throw new IllegalArgumentException("`notches` must be uppercase letters (passed `" + notches + "`)");
+            mask |= 1 << (c - 65);
+        }
+
+        this.name = name;
+        this.wiring = wiring;
+        this.notches = mask;
+        this.turnover = Integer.numberOfTrailingZeros(mask);
+
+        for (int i = 0; i < 26; i++) this.backward[this.forward[i]] = i;
+
+        for (int offset = 0; offset < 26; offset++) {
+            for (int c = 0; c < 26; c++) {
+                this.forwardTable[offset * 26 + c] = Math.floorMod(this.forward[(c + offset) % 26] - offset, 26);
+                this.backwardTable[offset * 26 + c] = Math.floorMod(this.backward[(c + offset) % 26] - offset, 26);
+            }
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String wiring() {
+        return wiring;
+    }
+
+    /**
+     * @return  turnover notches as a bit mask, bit {@code p} set if the wheel turns its left neighbour when leaving position {@code p}
+     */
+    public int notches() {
+        return notches;
+    }
+
+    /**
+     * @return  first turnover position, 0 - 25
+     */
+    public int turnover() {
+        return turnover;
+    }
+
+    /**
+     * @param position  rotor position, 0 - 26
+     * @return          {@code true} if the wheel has a notch at {@code position}
+     */
+    public boolean hasNotchAt(int position) {
+        return (notches >>> position & 1) != 0;
+    }
+
+    public String toString() {
+        return String.format("Wheel(name=%s, wiring=%s, notches=%s)", name, wiring, notchLetters());
+    }
+
+    private String notchLetters() {
+        StringBuilder sb = new StringBuilder();
+        for (int p = 0; p < 26; p++) {
+            if ((notches >>> p & 1) != 0) sb.append((char) (p + 65));
+        }
+        return sb.toString();
+    }
+
+    static void verifyName(String name, String parameter) {
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("`" + parameter + "' must not be blank");
+    }
+}
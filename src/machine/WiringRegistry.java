@@ -0,0 +1,245 @@
+package src.machine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link WiringRegistry} holds the {@link Wheel} and {@link Reflector} definitions known to every {@link Enigma}.
+ * <p>
+ * Wheels I - V and reflectors B and C are always registered. Further definitions can be added with
+ * {@link #register(Wheel)}, {@link #register(Reflector)} or loaded from a file with {@link #load(Path)}.
+ * A name, once registered, always refers to the same wiring, so machines never see a definition change under them.
+ * <p>
+ * Every definition also gets a small id in registration order (wheels I - V are 0 - 4, reflectors B and C are 0 - 1),
+ * which is what {@link EnigmaKeyCodec} stores. Ids of custom definitions are only stable if they are registered
+ * in the same order.
+ *
+ * @see Rotor#setWheel(String)
+ * @see Enigma#setReflector(String)
+ */
+public final class WiringRegistry {
+    private static final Map<String, Wheel> WHEELS = new ConcurrentHashMap<>();
+    private static final Map<String, Reflector> REFLECTORS = new ConcurrentHashMap<>();
+    private static final List<Wheel> WHEEL_IDS = new CopyOnWriteArrayList<>();
+    private static final List<Reflector> REFLECTOR_IDS = new CopyOnWriteArrayList<>();
+
+    static {
+        register(new Wheel("I", "EKMFLGDQVZNTOWYHXUSPAIBRCJ", "Q"));
+        register(new Wheel("II", "AJDKSIRUXBLHWTMCQGZNPYFVOE", "E"));
+        register(new Wheel("III", "BDFHJLCPRTXVZNYEIWGAKMUSQO", "V"));
+        register(new Wheel("IV", "ESOVPZJAYQUIRHXLNFTGKDCMWB", "J"));
+        register(new Wheel("V", "VZBRGITYUPSDNHLXAWMJQOFECK", "Z"));
+
+        register(new Reflector("B", "YRUHQSLDPXNGOKMIEBFZCWVJAT"));
+        register(new Reflector("C", "RDOBJNTKVEHMLFCWZAXGYIPSUQ"));
+    }
+
+    private WiringRegistry() {
+    }
+
+    /**
+     * @param name  wheel name, e.g. {@code "I"}
+     * @return      the registered {@link Wheel}
+     * @throws IllegalArgumentException if no wheel is registered under {@code name}
+     */
+    public static Wheel wheel(String name) {
+        Wheel wheel = (name == null) ? null : WHEELS.get(name);
+        if (wheel == null) throw new IllegalArgumentException("unsupported wheel type");
+        return wheel;
+    }
+
+    /**
+     * @param name  reflector name, e.g. {@code "B"}
+     * @return      the registered {@link Reflector}
+     * @throws IllegalArgumentException if no reflector is registered under {@code name}
+     */
+    public static Reflector reflector(String name) {
+        Reflector reflector = (name == null) ? null : REFLECTORS.get(name);
+        if (reflector == null) throw new IllegalArgumentException("unsupported reflector model `" + name + "`");
+        return reflector;
+    }
+
+    /**
+     * @param name  wheel name
+     * @return      id of the registered wheel, in registration order
+     * @throws IllegalArgumentException if no wheel is registered under {@code name}
+     */
+    public static int wheelId(String name) {
+        return WHEEL_IDS.indexOf(wheel(name));
+    }
+
+    /**
+     * @param id    wheel id, see {@link #wheelId(String)}
+     * @return      the registered {@link Wheel}
+     * @throws IllegalArgumentException if no wheel has id {@code id}
+     */
+    public static Wheel wheel(int id) {
+        if (id < 0 || id >= WHEEL_IDS.size()) throw new IllegalArgumentException("unknown wheel id `" + id + "`");
+        return WHEEL_IDS.get(id);
+    }
+
+    /**
+     * @param name  reflector name
+     * @return      id of the registered reflector, in registration order
+     * @throws IllegalArgumentException if no reflector is registered under {@code name}
+     */
+    public static int reflectorId(String name) {
+        return REFLECTOR_IDS.indexOf(reflector(name));
+    }
+
+    /**
+     * @param id    reflector id, see {@link #reflectorId(String)}
+     * @return      the registered {@link Reflector}
+     * @throws IllegalArgumentException if no reflector has id {@code id}
+     */
+    public static Reflector reflector(int id) {
+        if (id < 0 || id >= REFLECTOR_IDS.size()) throw new IllegalArgumentException("unknown reflector id `" + id + "`");
+        return REFLECTOR_IDS.get(id);
+    }
+
+    /**
+     * @param wheel     {@link Wheel} to register under its name
+     * @return          the registered {@link Wheel}, which is the existing one if an identical definition was registered before
+     * @throws IllegalArgumentException if a different wheel is already registered under the same name
+     */
+    public static synchronized Wheel register(Wheel wheel) {
+        Wheel registered = WHEELS.putIfAbsent(wheel.name(), wheel);
+        if (registered == null) {
+            WHEEL_IDS.add(wheel);
+            return wheel;
+        }
+
+        if (!registered.wiring().equals(wheel.wiring()) || registered.notches() != wheel.notches()) {
+            throw new IllegalArgumentException("wheel `" + wheel.name() + "` is already registered with a different wiring");
+        }
+        return registered;
+    }
+
+    /**
+     * @param reflector     {@link Reflector} to register under its name
+     * @return              the registered {@link Reflector}, which is the existing one if an identical definition was registered before
+     * @throws IllegalArgumentException if a different reflector is already registered under the same name
+     */
+    public static synchronized Reflector register(Reflector reflector) {
+        Reflector registered = REFLECTORS.putIfAbsent(reflector.name(), reflector);
+        if (registered == null) {
+            REFLECTOR_IDS.add(reflector);
+            return reflector;
+        }
+
+        if (!registered.wiring().equals(reflector.wiring())) {
+            throw new IllegalArgumentException("reflector `" + reflector.name() + "` is already registered with a different wiring");
+        }
+        return registered;
+    }
+
+    /**
+     * Registers the definitions of a text file, one per line:
+     * <pre>
+     * # comment
+     * wheel      VI   JPGVOUMFYQBENHZRDKASXLICTW  ZM
+     * reflector  B-D  ...
+     * </pre>
+     * Fields are separated by whitespace; blank lines and lines starting with {@code #} are skipped.
+     * The whole file is validated before anything is registered, including name clashes with the registry and
+     * within the file, so a failed load registers nothing.
+     *
+     * @param file  definitions file
+     * @return      no. of definitions read
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is malformed or a name clashes with a different registered definition
+     */
+    public static int load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        List<Object> definitions = new ArrayList<>();
+        List<Integer> lineNumbers = new ArrayList<>();
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] fields = line.split("\\s+");
+            try {
+                definitions.add(switch (fields[0]) {
+                    case "wheel" -> {
+                        if (fields.length != 4) throw new IllegalArgumentException("expected `wheel NAME WIRING NOTCHES`");
+                        yield new Wheel(fields[1], fields[2], fields[3]);
+                    }
+                    case "reflector" -> {
+                        if (fields.length != 3) throw new IllegalArgumentException("expected `reflector NAME WIRING`");
+                        yield new Reflector(fields[1], fields[2]);
+                    }
+                    default -> throw new IllegalArgumentException("unknown definition `" + fields[0] + "`");
+                });
+                lineNumbers.add(i + 1);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(file + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+
+        synchronized (WiringRegistry.class) {
+            Map<String, Wheel> wheels = new HashMap<>(WHEELS);
+            Map<String, Reflector> reflectors = new HashMap<>(REFLECTORS);
+
+            for (int i = 0; i < definitions.size(); i++) {
+                Object definition = definitions.get(i);
+                boolean clash;
+                String kind;
+                String name;
+
+                if (definition instanceof Wheel wheel) {
+                    Wheel known = wheels.putIfAbsent(wheel.name(), wheel);
+                    clash = known != null && (!known.wiring().equals(wheel.wiring()) || known.notches() != wheel.notches());
+                    kind = "wheel";
+                    name = wheel.name();
+                } else {
+                    Reflector reflector = (Reflector) definition;
+                    Reflector known = reflectors.putIfAbsent(reflector.name(), reflector);
+                    clash = known != null && !known.wiring().equals(reflector.wiring());
+                    kind = "reflector";
+                    name = reflector.name();
+                }
+
+                if (clash) {
+                    throw new IllegalArgumentException(file + ":" + lineNumbers.get(i) + ": " + kind + " `" + name
+                            + "` is already registered or defined with a different wiring");
+                }
+            }
+
+            for (Object definition : definitions) {
+                if (definition instanceof Wheel wheel) register(wheel);
+                else register((Reflector) definition);
+            }
+        }
+
+        return definitions.size();
+    }
+
+    /**
+     * @param wiring    permutation of the 26 uppercase letters
+     * @param out       array of 26 receiving the letter indices
+     * @throws IllegalArgumentException if {@code wiring} is not a permutation of A-Z
+     */
+    static void parsePermutation(String wiring, int[] out) {
+        if (wiring == null || wiring.length() != 26) {
+            throw new IllegalArgumentException("`wiring` must be 26 letters long (passed `" + wiring + "`)");
+        }
+
+        int seen = 0;
+        for (int i = 0; i < 26; i++) {
+            int c = wiring.charAt(i) - 65;
+            if (c < 0 || c >= 26 || (seen >>> c & 1) != 0) {
+                throw new IllegalArgumentException("`wiring` must be a permutation of A-Z (passed `" + wiring + "`)");
+            }
+            seen |= 1 << c;
+            out[i] = c;
+        }
+    }
+}